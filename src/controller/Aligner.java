@@ -1,15 +1,31 @@
 package controller;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjLongConsumer;
 
 import io.Writer;
 import model.Alignment;
+import model.HyperplaneStorage;
 import model.IndexVector;
 import model.Matrix;
+import model.MaxProjection;
 import model.Sequence;
+import model.Traceback;
 import model.hasse.HasseGraph;
+import model.hasse.Lattice;
 import model.hasse.State;
+import model.hasse.Transition;
 import ui.TimeStampMaganer;
 
 /**
@@ -33,21 +49,117 @@ public class Aligner {
 	}
 	
   // object definition	
+	/** the kind of storage used for the score matrices of the actual alignment */
+	private Matrix.StorageType storageType = Matrix.StorageType.FLOAT;
+	/** the pool computing the hyperplanes of the full passes in parallel (null: the full passes are computed sequentially) */
+	private ForkJoinPool wavefrontPool = null;
+	/** the boundary planes shared between the states of the actual computation (null: every plane is computed) */
+	private PlaneCache planeCache = null;
+	/** the checkpoint interval of the states keeping their hyperplanes only (see HyperplaneStorage), missing states have no checkpoints */
+	private IdentityHashMap<State, Integer> checkpointIntervals = null;
+	
 	/**
 	 * aligns the given Sequences
 	 * @return the Alignment of the given Sequences
 	 */
 	public Alignment align(Sequence... sequences){
+		for (Sequence sequence : sequences) {
+			if (!sequence.isEncoded()) {
+				Scorer.getInstance().compile(sequences);						// the aligner works on alphabet codes only
+				break;
+			}
+		}
+		storageType = chooseStorageType(sequences);
 		TimeStampMaganer.getInstance().printTimeStamp("generating Hassegraph... ");
 		HasseGraph hasseGraph = generateHasseGraph(sequences);
+		prune(hasseGraph);
 		TimeStampMaganer.getInstance().printTimeStamp("computing " + hasseGraph.getStates().size() + " matrices... ");
 		compute(hasseGraph);
+		if (Settings.scoreOnly) {
+			System.out.println("maxfinalstate: " + hasseGraph.getMaxFinalState());
+			Alignment alignment = new Alignment(hasseGraph);					// the score only, no backtrack
+			hasseGraph.freeScoreMatrices();
+			return alignment;
+		}
+		MatrixReleaser.releaseUnreachable(hasseGraph, hasseGraph.getMaxFinalState());	// not on the backtrack path
 		TimeStampMaganer.getInstance().printTimeStamp("backtracking... ");
-		return new Alignment(backtrack(hasseGraph), hasseGraph);
+		Alignment alignment = new Alignment(backtrack(hasseGraph), hasseGraph);
+		hasseGraph.freeScoreMatrices();											// the matrices are not needed anymore (releases off-heap memory)
+		return alignment;
+	}
+	
+	/**
+	 * removes the States of the HasseGraph which can not reach a final State and,
+	 * if Settings.pruneLowerBound is given, prunes the States which can not be passed by an alignment scoring at least this bound
+	 */
+	private void prune(HasseGraph hasseGraph) {
+		int removedCount = hasseGraph.removeNonCoReachableStates();
+		if (removedCount > 0) {
+			System.out.println("removed " + removedCount + " states not reaching a final state");
+		}
+		Sequence[] sequences = hasseGraph.getSequences();
+		if (Settings.pruneLowerBound == null || sequences.length < 3) { return; }
+		if (Scorer.getInstance().getScore(Scorer.GAP_CODE, Scorer.GAP_CODE) > 0) {
+			System.out.println("no pruning by bound: the gap-gap score is positive");
+			return;
+		}
+		TimeStampMaganer.getInstance().printTimeStamp("computing pairwise bounds... ");
+		float[][] pairwiseScores = new float[sequences.length][sequences.length];
+		for (int p = 0; p < sequences.length; p++) {
+			for (int q = p+1; q < sequences.length; q++) {
+				HasseGraph pairGraph = generateHasseGraph(sequences[p], sequences[q]);
+				compute(pairGraph);
+				float maxScore = Float.NEGATIVE_INFINITY;
+				for (State state : pairGraph.getStates()) {						// any projected pairwise alignment ends in some cell
+					maxScore = Math.max(maxScore, state.getScoreMatrix().getMaxScore());
+				}
+				pairwiseScores[p][q] = pairwiseScores[q][p] = maxScore;
+				pairGraph.freeScoreMatrices();
+			}
+		}
+		int prunedCount = hasseGraph.pruneByBound(pairwiseScores, Settings.pruneLowerBound * Scorer.getInstance().getScale());
+		System.out.println("pruned " + prunedCount + " of " + hasseGraph.getStates().size() + " states by the bound " + Settings.pruneLowerBound);
+		if (!hasseGraph.hasUnprunedFinalState()) {									// the bound exceeds the optimal score
+			throw new java.lang.Error("prune bound " + Settings.pruneLowerBound + ": every final state is pruned, no alignment scores at least the bound");
+		}
+	}
+	
+	/**
+	 * chooses the storage of the score matrices: floats, or fixed-point integers if the integer scoring is used
+	 * (short values if allowed and every possible score fits into a short, int values take as much memory as floats).
+	 * Matrices exceeding 2^31 entries are stored off-heap anyway.
+	 */
+	private Matrix.StorageType chooseStorageType(Sequence... sequences) {
+		if (!Settings.integerScoring) {
+			return Settings.offHeapStorage ? Matrix.StorageType.OFF_HEAP : Matrix.StorageType.FLOAT;
+		}
+		long scoreBound = Scorer.getInstance().getScoreBound(sequences);
+		boolean automaticScale = Settings.scoreScale <= 0;
+		while (scoreBound >= (1 << 24) && automaticScale && Scorer.getInstance().getScale() > 1) {	// lower the scale (the scores are rounded to it)
+			Settings.scoreScale = Scorer.getInstance().getScale() / 10;
+			Scorer.getInstance().compile(sequences);
+			scoreBound = Scorer.getInstance().getScoreBound(sequences);
+			System.out.println("integer scoring: scale lowered to " + Settings.scoreScale + " (scores up to " + scoreBound + ")");
+		}
+		if (scoreBound >= (1 << 24)) {
+			throw new java.lang.Error("integer scoring: scores up to " + scoreBound + " exceed the exact float range (2^24), use a smaller scale");
+		}
+		if (Settings.shortStorage && scoreBound <= Short.MAX_VALUE) {
+			return Matrix.StorageType.SHORT;
+		}
+		return Matrix.StorageType.INT;
 	}
 	
 	/** generates a HasseDiagram from a given set of Sequences */
 	public HasseGraph generateHasseGraph(Sequence... sequences) {
+		if (Settings.latticeGenerator) {							// enumerate the states in closed form
+			HasseGraph hasseGraph = new Lattice(sequences).toHasseGraph();
+			System.out.println("lattice:");
+			for (State state : hasseGraph.getStates()) {
+				System.out.println(state);
+			}
+			return hasseGraph;
+		}
 		// to save all the states
 		ArrayList<State> states = new ArrayList<>();
 		// to save the indices of global left and right sequences
@@ -116,13 +228,14 @@ public class Aligner {
 	 */
 	private void activate(ArrayList<State> oldStates, ArrayList<State> states, ArrayList<Integer> activatable) {
 		ArrayList<State> newStates = new ArrayList<>();
+		HashSet<State> newStatesSet = new HashSet<>();						// to find doubled states in O(1)
 		while (true) {
 			for (Integer i : activatable) {
 				for (int j = 0; j < states.size(); j++) {					// activate all the left local sequences in each state
 					State newState = (State) states.get(j).clone();
 					if (newState.activate(i)) {
 						newState.order();									// put the indexlists in ascending order
-						if (!newStates.contains(newState)) { 
+						if (newStatesSet.add(newState)) { 
 							newStates.add(newState);
 						}
 					}
@@ -146,6 +259,7 @@ public class Aligner {
 			oldStates.addAll(newStates);
 			states = newStates;
 			newStates = new ArrayList<>();
+			newStatesSet = new HashSet<>();
 		}
 	}
 
@@ -229,37 +343,297 @@ public class Aligner {
 		}
 	}
 
-	/** computes all States of the given HasseGraph starting by the initial state */
+	/**
+	 * computes all States of the given HasseGraph starting by the initial state
+	 * every State is computed as soon as all its previous States are computed (dependency counting),
+	 * independent States are computed in parallel using Settings.parallelism threads.
+	 * The result does not depend on the order, since a State reads the matrices of its previous States only.
+	 * If Settings.wavefront is set the full passes are split into hyperplanes computed in parallel as well.
+	 */
 	public void compute (HasseGraph hasseGraph) {
-		ArrayList<State> statesToCompute = new ArrayList<>(hasseGraph.getStates());
-		compute(hasseGraph.getInitialState(), hasseGraph);
-		System.out.print("#");
-		statesToCompute.remove(hasseGraph.getInitialState());
-		while (true) {
-			if (statesToCompute.size() == 0) { break; }
-			for (int i = 0; i < statesToCompute.size(); i++) {
-				State state = statesToCompute.get(i);
-				
-				boolean computable = true;
-				for (State previousState : state.getPrevious()) {
-					if (statesToCompute.contains(previousState)) {			// if one of the previous states is not computed yet => cant compute this state
-						computable = false;
-						break;
-					}
+		if (Settings.wavefront && Settings.parallelism > 1) {
+			wavefrontPool = new ForkJoinPool(Settings.parallelism);
+		}
+		if (Settings.planeCache) {
+			planeCache = createPlaneCache(hasseGraph);
+		}
+		if (Settings.linearSpace && Settings.checkpointBudget != null && !Settings.scoreOnly) {
+			checkpointIntervals = getCheckpointIntervals(hasseGraph);
+		}
+		try {
+			computeStates(hasseGraph);
+		} finally {
+			if (wavefrontPool != null) {
+				wavefrontPool.shutdown();
+				wavefrontPool = null;
+			}
+			planeCache = null;
+			checkpointIntervals = null;
+		}
+	}
+	
+	/**
+	 * @return true if the Matrix of the state can keep its boundary and a few hyperplanes only (see HyperplaneStorage):
+	 * every following state misses one of its sequences, so it reads the max projections and the max score of the Matrix only
+	 */
+	private static boolean isHyperplaneState(State state) {
+		if (state.getActive().size() < 2) { return false; }
+		for (State followingState : state.getFollowing()) {
+			if (!followingState.isPruned() && (state.getActiveMask() & ~followingState.getActiveMask()) == 0) {
+				return false;																// reads the cells
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return true if the Matrix of the state keeps its boundary cells and a few hyperplanes only (see isHyperplaneState): with Settings.linearSpace,
+	 * or in score-only mode if it has at least Settings.scoreOnlyHyperplaneMinSize entries (smaller matrices are computed faster row by row)
+	 */
+	private static boolean keepsHyperplanes(State state, HasseGraph hasseGraph) {
+		if (!isHyperplaneState(state)) { return false; }
+		return Settings.linearSpace || Settings.scoreOnly && getMatrixSize(state, hasseGraph) >= Settings.scoreOnlyHyperplaneMinSize;
+	}
+	
+	/**
+	 * chooses the checkpoint interval of the states keeping their hyperplanes only, so the checkpoints of all of them fit into
+	 * Settings.checkpointBudget. The budget is shared in proportion to the sizes of the matrices, a state keeps a checkpoint
+	 * (the n hyperplanes a recomputation starts from) every interval hyperplanes, the backtrack recomputes between two checkpoints.
+	 * @return the intervals (states without a checkpoint in their share are missing)
+	 */
+	private IdentityHashMap<State, Integer> getCheckpointIntervals(HasseGraph hasseGraph) {
+		ArrayList<State> hyperplaneStates = new ArrayList<>();
+		double totalSize = 0;
+		for (State state : hasseGraph.getStates()) {
+			if (!state.isPruned() && isHyperplaneState(state)) {
+				hyperplaneStates.add(state);
+				totalSize += getMatrixSize(state, hasseGraph);
+			}
+		}
+		IdentityHashMap<State, Integer> intervals = new IdentityHashMap<>();
+		for (State state : hyperplaneStates) {
+			int maxSum = 0;
+			int maxLength = 0;
+			for (int index : state.getActive()) {
+				int length = hasseGraph.getSequences()[index].getLength() +1;
+				maxSum += length -1;
+				maxLength = Math.max(maxLength, length);
+			}
+			double size = getMatrixSize(state, hasseGraph);
+			double checkpointBytes = 4 * state.getActive().size() * size / maxLength;		// n hyperplanes without the longest dimension
+			int checkpointsCount = (int) (Settings.checkpointBudget * size / totalSize / checkpointBytes);
+			if (checkpointsCount > 0) {
+				intervals.put(state, Math.max(state.getActive().size(), maxSum / (checkpointsCount+1) +1));
+			}
+		}
+		return intervals;
+	}
+	
+	/** @return true if the full pass of the state records its backtrack steps (see Traceback and computeMatrix) */
+	private static boolean recordsTraceback(State state, HasseGraph hasseGraph) {
+		return Settings.traceback && !Settings.scoreOnly && state.getActive().size() <= Traceback.MAX_SEQUENCES
+				&& getMatrixSize(state, hasseGraph) <= Integer.MAX_VALUE && !keepsHyperplanes(state, hasseGraph);
+	}
+	
+	/**
+	 * @return true if the interior cells of the Matrix of the state are released as soon as its readers are computed (see MatrixReleaser):
+	 * the backtrack follows its recorded steps and every following state reads it through a max projection (see isHyperplaneState)
+	 */
+	private static boolean isShrinking(State state, HasseGraph hasseGraph) {
+		return !state.isPruned() && isHyperplaneState(state) && recordsTraceback(state, hasseGraph);
+	}
+	
+	/**
+	 * @return the number of bytes the Matrix of the state keeps while following states read it: its cells and its recorded steps,
+	 * or its boundary cells only if it keeps its hyperplanes only
+	 */
+	private double getLiveBytes(State state, HasseGraph hasseGraph) {
+		if (state.isPruned() || state.getActive().size() == 0) { return 0; }				// no Matrix
+		if (keepsHyperplanes(state, hasseGraph)) {
+			return 4 * getBoundarySize(state, hasseGraph);
+		}
+		return getMatrixSize(state, hasseGraph) * (storageType == Matrix.StorageType.SHORT ? 2 : 4) + getTracebackBytes(state, hasseGraph);
+	}
+	
+	/**
+	 * @return the number of bytes the Matrix of the state keeps after its readers are computed: nothing in score-only mode, its boundary cells,
+	 * its recorded steps and the max projections read by the following states if its interior cells are released, all of it otherwise
+	 */
+	private double getKeptBytes(State state, HasseGraph hasseGraph) {
+		if (Settings.scoreOnly) { return 0; }
+		if (!isShrinking(state, hasseGraph)) { return getLiveBytes(state, hasseGraph); }
+		double bytes = 4 * getBoundarySize(state, hasseGraph) + getTracebackBytes(state, hasseGraph);
+		for (int keptMask : getProjectionMasks(state)) {
+			double projectionSize = 1;
+			for (int i = 0; i < state.getActive().size(); i++) {
+				if ((keptMask & (1 << i)) != 0) { projectionSize *= hasseGraph.getSequences()[state.getActive().get(i)].getLength() +1; }
+			}
+			bytes += 12 * projectionSize;													// a max score and its offset
+		}
+		return bytes;
+	}
+	
+	/** @return the number of boundary cells (with a 0 index) of the Matrix of the state, counted once per face */
+	private static double getBoundarySize(State state, HasseGraph hasseGraph) {
+		double size = getMatrixSize(state, hasseGraph);
+		double faces = 0;
+		for (int index : state.getActive()) {
+			faces += size / (hasseGraph.getSequences()[index].getLength() +1);
+		}
+		return faces;
+	}
+	
+	/** @return the number of bytes of the backtrack steps recorded by the full pass of the state (0 if they are not recorded, see Traceback) */
+	private static double getTracebackBytes(State state, HasseGraph hasseGraph) {
+		if (!recordsTraceback(state, hasseGraph)) { return 0; }
+		int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros((1 << state.getActive().size()) + state.getPrevious().size() -1));
+		return getMatrixSize(state, hasseGraph) * bits / 8;
+	}
+	
+	/** @return the number of cells of the Matrix of the state */
+	private static double getMatrixSize(State state, HasseGraph hasseGraph) {
+		double size = 1;
+		for (int index : state.getActive()) {
+			size *= hasseGraph.getSequences()[index].getLength() +1;
+		}
+		return size;
+	}
+	
+	/** registers the plane passes of all the States which will be computed (the planes of the States with the same key are shared) */
+	private PlaneCache createPlaneCache(HasseGraph hasseGraph) {
+		PlaneCache planeCache = new PlaneCache(Settings.planeCacheSize);
+		for (State state : hasseGraph.getStates()) {
+			if (state.isPruned() || state.getActive().size() < 3) { continue; }		// no boundary planes
+			ArrayList<int[]> planes = getPlanes(state.getActive().size());
+			ArrayList<ArrayList<State>> transitionStates = new ArrayList<>();
+			for (int[] indicesToCount : planes) {
+				transitionStates.add(getPlaneTransitionStates(state, indicesToCount, hasseGraph));
+			}
+			planeCache.register(state, planes, transitionStates);
+		}
+		planeCache.shareOnly();
+		return planeCache;
+	}
+	
+	/** computes all States of the given HasseGraph as soon as their previous States are computed (see compute) */
+	private void computeStates (HasseGraph hasseGraph) {
+		ArrayList<State> states = hasseGraph.getStates();
+		AtomicIntegerArray missingPrevious = new AtomicIntegerArray(states.size());	// the number of previous states not computed yet
+		ArrayList<ArrayList<Integer>> following = new ArrayList<>();					// the indices of the states waiting for a state
+		HashMap<State, Integer> indices = new HashMap<>();							// the index of every state (looked up per edge)
+		for (int i = 0; i < states.size(); i++) {
+			following.add(new ArrayList<Integer>());
+			indices.putIfAbsent(states.get(i), i);
+		}
+		for (int i = 0; i < states.size(); i++) {
+			for (State previousState : states.get(i).getPrevious()) {
+				int previousIndex = indices.getOrDefault(previousState, -1);
+				if (previousIndex >= 0 && previousIndex != i) {						// states out of the graph are not computed here
+					following.get(previousIndex).add(i);
+					missingPrevious.incrementAndGet(i);
 				}
-				if (computable) {
-					compute(state, hasseGraph);
-					statesToCompute.remove(state);
-					System.out.print("#");
-					i--;
+			}
+		}
+		MatrixReleaser releaser = createReleaser(states, indices, hasseGraph);
+		
+		int parallelism = Math.max(1, Math.min(Settings.parallelism, states.size()));
+		if (parallelism == 1) {
+			ArrayList<Integer> ready = new ArrayList<>();
+			for (int i = 0; i < states.size(); i++) {
+				if (missingPrevious.get(i) == 0) { ready.add(i); }
+			}
+			while (!ready.isEmpty()) {
+				int index = ready.remove(releaser.choose(ready));					// the live matrices grow least
+				compute(states.get(index), hasseGraph);
+				releaser.computed(index);
+				System.out.print("#");
+				for (int followingIndex : following.get(index)) {
+					if (missingPrevious.decrementAndGet(followingIndex) == 0) { ready.add(followingIndex); }
 				}
 			}
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+			CountDownLatch done = new CountDownLatch(states.size());
+			AtomicReference<Throwable> failure = new AtomicReference<>();
+			ArrayList<Integer> initiallyReady = new ArrayList<>();				// collected first, the submitted states make following states ready meanwhile
+			for (int i = 0; i < states.size(); i++) {
+				if (missingPrevious.get(i) == 0) { initiallyReady.add(i); }
+			}
+			for (int index : initiallyReady) {
+				submit(executor, index, states, following, missingPrevious, releaser, done, failure, hasseGraph);
+			}
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failure.compareAndSet(null, e);
+			} finally {
+				executor.shutdownNow();
+			}
+			if (failure.get() != null) {
+				throw new java.lang.Error("Aligner.compute: computing a state failed: " + failure.get(), failure.get());
+			}
 		}
 		System.out.println();
 	}
+	
+	/**
+	 * counts the states read by the passes of every state (the previous states of its transitions), so the matrices can be
+	 * released as soon as their readers are computed; in score-only mode no backtrack follows, so they are released while computing,
+	 * in backtrack mode the interior cells of the matrices recording their steps are released (see isShrinking)
+	 */
+	private MatrixReleaser createReleaser(ArrayList<State> states, HashMap<State, Integer> indices, HasseGraph hasseGraph) {
+		ArrayList<ArrayList<Integer>> read = new ArrayList<>();
+		double[] liveBytes = new double[states.size()];
+		double[] keptBytes = new double[states.size()];
+		boolean[] shrinking = new boolean[states.size()];
+		for (int i = 0; i < states.size(); i++) {
+			State state = states.get(i);
+			TreeSet<Integer> readIndices = new TreeSet<>();
+			if (!state.isPruned() && state.getActive().size() > 0) {
+				ArrayList<int[]> passes = getPlanes(state.getActive().size());
+				passes.add(null);															// the full pass
+				for (int[] indicesToCount : passes) {
+					for (State previousState : getPlaneTransitionStates(state, indicesToCount, hasseGraph)) {
+						int previousIndex = indices.getOrDefault(previousState, -1);
+						if (previousIndex >= 0 && previousIndex != i) { readIndices.add(previousIndex); }
+					}
+				}
+			}
+			read.add(new ArrayList<>(readIndices));
+			liveBytes[i] = getLiveBytes(state, hasseGraph);
+			keptBytes[i] = getKeptBytes(state, hasseGraph);
+			shrinking[i] = isShrinking(state, hasseGraph);
+		}
+		return new MatrixReleaser(states, read, liveBytes, keptBytes, Settings.scoreOnly, shrinking);
+	}
+	
+	/** submits the computation of a ready state, the state submits its following states as soon as they are ready */
+	private void submit(ExecutorService executor, int index, ArrayList<State> states, ArrayList<ArrayList<Integer>> following,
+			AtomicIntegerArray missingPrevious, MatrixReleaser releaser, CountDownLatch done, AtomicReference<Throwable> failure, HasseGraph hasseGraph) {
+		executor.execute(() -> {
+			try {
+				compute(states.get(index), hasseGraph);
+				releaser.computed(index);
+				System.out.print("#");
+				for (int followingIndex : following.get(index)) {
+					if (missingPrevious.decrementAndGet(followingIndex) == 0) {
+						submit(executor, followingIndex, states, following, missingPrevious, releaser, done, failure, hasseGraph);
+					}
+				}
+				done.countDown();
+			} catch (Throwable t) {
+				failure.compareAndSet(null, t);
+				while (done.getCount() > 0) {										// following states will never be ready => stop waiting
+					done.countDown();
+				}
+			}
+		});
+	}
 
 	/** computes a states scoreMatrix */
 	private void compute (State state, HasseGraph hasseGraph) {
+		if (state.isPruned()) { return; }										// no optimal alignment passes this state
 		state.setScoreMatrix(computeMatrix(state, hasseGraph));
 	}
 
@@ -282,22 +656,55 @@ public class Aligner {
 			}
 		}
 		
-		IndexVector iPattern = new IndexVector(new int[sequences.length]);		// the index Vector used for iteration (I-Pattern)
-		Matrix scoreMatrix = new Matrix(sequences);								// the score Matrix
+		Matrix.StorageType matrixStorageType = storageType;
+		if (state != null && keepsHyperplanes(state, hasseGraph)) {
+			matrixStorageType = Matrix.StorageType.HYPERPLANES;					// no following state reads the cells
+		} else if (Settings.scratchDirectory != null && Matrix.getSize(sequences) >= Settings.mappedStorageMinSize) {
+			matrixStorageType = Matrix.StorageType.MAPPED;						// spill large matrices to the scratch directory
+		}
+		Matrix scoreMatrix = new Matrix(matrixStorageType, sequences);			// the score Matrix
+		if (checkpointIntervals != null && checkpointIntervals.containsKey(state)) {
+			scoreMatrix.getHyperplaneStorage().setCheckpoints(checkpointIntervals.get(state), sequences.length);
+		}
+		if (Settings.traceback && !Settings.scoreOnly && sequences.length <= Traceback.MAX_SEQUENCES && scoreMatrix.getSize() <= Integer.MAX_VALUE
+				&& scoreMatrix.getHyperplaneStorage() == null) {
+			scoreMatrix.setTraceback(new Traceback(scoreMatrix.getSize(), sequences.length, state != null ? state.getPrevious().size() : 0));	// the full pass records the backtrack steps
+		}
 		
 		//initialization (initial rows/columns)
-		for (int i = 0; i < iPattern.length(); i++) {
-			for (iPattern.set(1, i); iPattern.get(i) < scoreMatrix.getLength(i); iPattern.addTo(1, i)) {
+		for (int i = 0; i < sequences.length; i++) {
+			long stride = scoreMatrix.getStride(i);								// flat offset of one step in sequence i
+			for (int index = 1; index < scoreMatrix.getLength(i); index++) {
 				scoreMatrix.set(scoreMatrix.get(
-						iPattern.getChangedArray(-1, i)) + 															// predeceeding matrix etnry
-						(Scorer.getInstance().getScore(sequences[i].get(iPattern.get(i)-1), Scorer.GAP_CHAR) * 		// + gap score
-						(iPattern.length() -1)), iPattern.toArray());												// * sequences (times to count the gap score)
+						(index-1) * stride) + 																// predeceeding matrix etnry
+						(Scorer.getInstance().getScore(sequences[i].getCode(index-1), Scorer.GAP_CODE) * 	// + gap score
+						(sequences.length -1)), index * stride);											// * sequences (times to count the gap score)
 			}
-			iPattern.set(0, i);	
 		}
 		
 		// initialization (initial planes)
-		for (int i = 2; i < sequences.length; i++) {						// i = 2 since we need this for (at least two-dimensional) planes
+		ArrayList<int[]> planes = getPlanes(sequences.length);
+		String[] planeKeys = planeCache == null || state == null ? null : planeCache.getKeys(state);	// the keys of the planes shared with other states
+		for (int p = 0; p < planes.size(); p++) {
+			int[] indicesToCount = planes.get(p);
+			String key = planeKeys == null ? null : planeKeys[p];
+			if (key == null || !planeCache.restore(key, scoreMatrix, indicesToCount)) {
+				computeMatrixPlane(state, scoreMatrix, sequences, allSequences, indicesToCount, hasseGraph);// compute Matrix plane using the chosen Sequences (Dimensions)
+				if (key != null) {
+					planeCache.store(key, scoreMatrix, indicesToCount);
+				}
+			}
+		}
+		
+		// compute complete Matrix using every Sequence
+		computeMatrixPlane(state, scoreMatrix, sequences, allSequences, null, hasseGraph);
+		return scoreMatrix;
+	}
+	
+	/** @return the boundary planes (2 ... count-1 of the count sequences) in the order they are computed */
+	private static ArrayList<int[]> getPlanes(int count) {
+		ArrayList<int[]> planes = new ArrayList<>();
+		for (int i = 2; i < count; i++) {									// i = 2 since we need this for (at least two-dimensional) planes
 			int[] indicesToCount = new int[i];										// specifies the planes sequences
 			for (int j = 0; j < indicesToCount.length; j++) {						// initialization of initialization
 				indicesToCount[j] = j;												// skip cases with same indices							
@@ -305,334 +712,1104 @@ public class Aligner {
 			
 			while (true) {															// iteration over every possible i-dimensional (hyper) plane starts here
 				
-				computeMatrixPlane(state, scoreMatrix, sequences, allSequences, indicesToCount, hasseGraph);// compute Matrix plane using the chosen Sequences (Dimensions)
+				planes.add(indicesToCount.clone());
 				
 				indicesToCount[indicesToCount.length-1]++;										// iteration logic (binomial (n over i))
 				for (int j = indicesToCount.length -1 ; j > 0 ; j--) {							// just go down to 1 ( j > 0 )
-					if (indicesToCount[j] == sequences.length-(indicesToCount.length-1-j)) {
+					if (indicesToCount[j] == count-(indicesToCount.length-1-j)) {
 						indicesToCount[j-1]++;
 						for (int k = j; k < indicesToCount.length; k++) {						// reset following indices to lowest possible value
 							indicesToCount[k] = indicesToCount[k-1] +1; 
 						}
 					}
 				}
-				if (indicesToCount[indicesToCount.length-1] == sequences.length) {							// overflow on end
+				if (indicesToCount[indicesToCount.length-1] == count) {										// overflow on end
 					break;
 				}
 			}																// iteration over every possible i-dimensional (hyper) plane ends here
 		}
-		
-		// compute complete Matrix using every Sequence
-		computeMatrixPlane(state, scoreMatrix, sequences, allSequences, null, hasseGraph);
-		return scoreMatrix;
+		return planes;
+	}
+	
+	/**
+	 * returns the previous states taken into account by a plane pass of the state
+	 * @param indicesToCount - the plane (null: the full pass)
+	 * @return the previous states of the plane state which are previous states of the state as well
+	 */
+	private ArrayList<State> getPlaneTransitionStates(State state, int[] indicesToCount, HasseGraph hasseGraph) {
+		State imaginaryPlaneState;
+		if (indicesToCount == null) {
+			imaginaryPlaneState = state;
+		} else {
+			imaginaryPlaneState = hasseGraph.getOrCreateStateByActiveSequences(state, indicesToCount);	// the State with indicesToUse as active states (can allways be found in previous states)
+		}
+		ArrayList<State> transitionStates = new ArrayList<>();
+		for (State previousState : imaginaryPlaneState.getDirectlyPrevious()) {								// look at previous states
+			if (! state.getPrevious().contains(previousState)) {									// look at intersection state.getPrevious() and imaginaryPlaneState.getPrevious()
+				break;
+			}
+			if (previousState.isPruned()) { continue; }											// not computed
+			transitionStates.add(previousState);
+		}
+		return transitionStates;
+	}
+	
+	/**
+	 * returns the kept dimensions of the max projections the following States read from the Matrix of the state
+	 * (the sequences of the state active in a following state and every subset of them for the planes of the following state)
+	 * @return the kept dimension masks (bit i set: dimension i of the Matrix is kept)
+	 */
+	private static TreeSet<Integer> getProjectionMasks(State state) {
+		TreeSet<Integer> projectionMasks = new TreeSet<>();
+		for (State followingState : state.getFollowing()) {
+			if (followingState.isPruned()) { continue; }									// not computed
+			int keptMask = 0;
+			for (int i = 0; i < state.getActive().size(); i++) {
+				if (followingState.getActive().contains(state.getActive().get(i))) { keptMask |= 1 << i; }
+			}
+			for (int mask = keptMask; mask != 0; mask = (mask-1) & keptMask) {
+				projectionMasks.add(mask);
+			}
+		}
+		projectionMasks.remove((1 << state.getActive().size()) -1);						// nothing to project (read from the cells)
+		return projectionMasks;
 	}
 	
 	/**
 	 * computes a plane of t he scoreMatrix
+	 * the full pass (indicesToCount == null) runs as a wavefront over the hyperplanes i1+...+in = k if a wavefront pool is given
 	 * @param scoreMatrix - Matrix with scores
 	 * @param sequences - the sequences to align
 	 * @param allSequences - all the Sequences of the whole Alignment
 	 * @param indicesToCount -  indices of sequences to use here (if null -> use all)
 	 */
 	private void computeMatrixPlane(State state, Matrix scoreMatrix, Sequence[] sequences, Sequence[] allSequences, int[] indicesToCount, HasseGraph hasseGraph){
-		boolean fullState = false;													// true if all sequences are used
-		if (indicesToCount == null) {												// if null use all
-			indicesToCount = new int[sequences.length];
-			for (int i = 0; i < indicesToCount.length; i++) {
-				indicesToCount[i] = i;
+		PlanePass planePass = new PlanePass(state, scoreMatrix, sequences, allSequences, indicesToCount, hasseGraph);
+		if (planePass.fullState && scoreMatrix.getHyperplaneStorage() != null) {
+			planePass.computeHyperplanes(getProjectionMasks(state));
+		} else if (planePass.fullState && wavefrontPool != null) {
+			planePass.computeWavefront();
+		} else if (Settings.tiling == null ? scoreMatrix.getSize() * 4 > Settings.lastLevelCacheSize : Settings.tiling) {
+			planePass.computeTiled(Settings.tileLength > 0 ? Settings.tileLength : getTileLength(planePass.indicesToCount.length));
+		} else {
+			planePass.compute();
+		}
+		if (planePass.fullState) {
+			planePass.maxScoreTracker.recordIn(scoreMatrix);					// the full pass sees the final value of every cell
+		}
+	}
+	
+	/** @return the tile length, so a tile of the given dimensions count fits into the Settings.tileCacheSize (floats) */
+	private int getTileLength(int dimensions) {
+		return Math.max(2, (int) Math.pow(Settings.tileCacheSize / 4, 1.0 / dimensions));
+	}
+	
+	/**
+	 * A PlanePass computes the cells of a (hyper) plane of a scoreMatrix.
+	 * Every cell depends on cells with a smaller index sum and on the matrices of previous states only,
+	 * so the cells can be computed in lexicographic order or hyperplane by hyperplane (wavefront) with the same result.
+	 */
+	private class PlanePass {
+		/** the actual state (null if no state is given) */
+		private State state;
+		/** the Matrix to fill */
+		private Matrix scoreMatrix;
+		/** the active sequences of the state */
+		private Sequence[] sequences;
+		/** all the Sequences of the whole Alignment */
+		private Sequence[] allSequences;
+		/** the indices of the plane sequences */
+		private int[] indicesToCount;
+		/** the HasseGraph */
+		private HasseGraph hasseGraph;
+		/** true if all sequences are used */
+		private boolean fullState;
+		/** the flat offsets of one step in each plane dimension (neighbor moves) */
+		private long[] planeStrides;
+		/** the max index sum of the dimensions i ... (the last one is 0) */
+		private int[] maxSuffixSums;
+		/** the flat offset deltas of the neighbors (predecessors) of a cell, one per PI-Pattern (except (0,...,0)) in the order the backtrack tries them */
+		private long[] neighborOffsets;
+		/** the PI-Pattern masks matching the neighborOffsets (bit i set: sequence i contributes a residue, the last sequence changes first) */
+		private int[] neighborMasks;
+		/** the storage of the Matrix if it keeps its boundary cells and a few hyperplanes only (null otherwise), its arrays are accessed at running offsets */
+		private HyperplaneStorage hyperplaneStorage;
+		/** the first dimension of the Matrix which is no plane dimension (the face of the cells without a 0 plane index), the number of dimensions for the full pass */
+		private int firstOutside;
+		/** the offset between two neighbouring entries of each plane dimension in a hyperplane of the hyperplaneStorage */
+		private long[] hyperplaneStrides;
+		/** the hyperplane offset deltas of the neighbors matching the neighborOffsets */
+		private long[] neighborHyperplaneOffsets;
+		/** the number of hyperplanes between a cell and each neighbor (the residues of the PI-Pattern) matching the neighborOffsets */
+		private int[] neighborSumDeltas;
+		/** the offset between two neighbouring entries of each plane dimension in each face of the hyperplaneStorage (by the dimension of the face) */
+		private long[][] faceStrides;
+		/** the face offset deltas of the neighbors matching the neighborOffsets in each face */
+		private long[][] neighborFaceOffsets;
+		/** the transitions from the previous states of the plane which are previous states of the state as well (their scores are taken into account) */
+		private ArrayList<Transition> transitions = new ArrayList<>();
+		/** collects the max score of the full pass (null if this is no full pass) */
+		private MaxScoreTracker maxScoreTracker;
+		/** the backtrack steps recorded by the full pass (null if this is no full pass or they are not recorded) */
+		private Traceback traceback;
+		/** the backtrack steps of the interior cells of the recomputed hyperplanes by index sum, at their hyperplane offsets (null: not recorded, see LinearSpaceTrace) */
+		private Traceback[] hyperplaneTracebacks;
+		/** the index in state.getPrevious() of the previous state of every transition (null if no steps are recorded) */
+		private int[] transitionPreviousIndices;
+		/** true if the row kernels finish the cells with finishCell (there are transitions or this is the full pass) */
+		private boolean finishing;
+		
+		private PlanePass(State state, Matrix scoreMatrix, Sequence[] sequences, Sequence[] allSequences, int[] indicesToCount, HasseGraph hasseGraph) {
+			this.fullState = false;
+			if (indicesToCount == null) {												// if null use all
+				indicesToCount = new int[sequences.length];
+				for (int i = 0; i < indicesToCount.length; i++) {
+					indicesToCount[i] = i;
+				}
+				this.fullState = true;
+				this.maxScoreTracker = new MaxScoreTracker();
+				this.traceback = scoreMatrix.getTraceback();
+			}
+			this.state = state;
+			this.scoreMatrix = scoreMatrix;
+			this.sequences = sequences;
+			this.allSequences = allSequences;
+			this.indicesToCount = indicesToCount;
+			this.hasseGraph = hasseGraph;
+			this.planeStrides = new long[indicesToCount.length];
+			this.maxSuffixSums = new int[indicesToCount.length+1];
+			for (int i = indicesToCount.length-1; i >= 0; i--) {
+				planeStrides[i] = scoreMatrix.getStride(indicesToCount[i]);
+				maxSuffixSums[i] = maxSuffixSums[i+1] + scoreMatrix.getLength(indicesToCount[i]) -1;
+			}
+			this.hyperplaneStorage = scoreMatrix.getHyperplaneStorage();
+			int dimensions = scoreMatrix.getDimensions();
+			this.firstOutside = 0;
+			while (firstOutside < indicesToCount.length && indicesToCount[firstOutside] == firstOutside) {		// the plane indices are ascending
+				firstOutside++;
+			}
+			this.hyperplaneStrides = new long[indicesToCount.length];
+			this.faceStrides = new long[hyperplaneStorage != null ? dimensions : 0][indicesToCount.length];
+			for (int i = 0; i < indicesToCount.length && hyperplaneStorage != null; i++) {
+				hyperplaneStrides[i] = hyperplaneStorage.getHyperplaneStrides()[indicesToCount[i]];
+				for (int face = 0; face < dimensions; face++) {
+					faceStrides[face][i] = hyperplaneStorage.getFaceStrides(face)[indicesToCount[i]];
+				}
+			}
+			this.neighborOffsets = new long[(1 << indicesToCount.length) -1];
+			this.neighborMasks = new int[neighborOffsets.length];
+			this.neighborHyperplaneOffsets = new long[neighborOffsets.length];
+			this.neighborSumDeltas = new int[neighborOffsets.length];
+			this.neighborFaceOffsets = new long[faceStrides.length][neighborOffsets.length];
+			for (int counter = 1; counter <= neighborOffsets.length; counter++) {		// the first maximal neighbor is the one the backtrack takes
+				int mask = 0;
+				for (int i = 0; i < indicesToCount.length; i++) {
+					if ((counter & (1 << (indicesToCount.length-1-i))) != 0) {
+						mask |= 1 << i;
+						neighborOffsets[counter-1] -= planeStrides[i];
+						neighborHyperplaneOffsets[counter-1] -= hyperplaneStrides[i];
+						neighborSumDeltas[counter-1]++;
+						for (int face = 0; face < faceStrides.length; face++) {
+							neighborFaceOffsets[face][counter-1] -= faceStrides[face][i];
+						}
+					}
+				}
+				neighborMasks[counter-1] = mask;
+			}
+			
+			// the plane state depends on the state and the plane only, so it is resolved once per pass
+			if (state != null) {
+				for (State previousState : getPlaneTransitionStates(state, fullState ? null : indicesToCount, hasseGraph)) {
+					transitions.add(fullState ? state.getTransition(previousState) : new Transition(state, previousState, indicesToCount));	// compiled once per pass
+				}
+			}
+			this.finishing = !transitions.isEmpty() || fullState;
+			if (traceback != null || fullState && hyperplaneStorage != null) {			// the steps may be recorded
+				this.transitionPreviousIndices = new int[transitions.size()];
+				for (int t = 0; t < transitionPreviousIndices.length; t++) {
+					transitionPreviousIndices[t] = state.getPrevious().indexOf(transitions.get(t).getPreviousState());
+				}
 			}
-			fullState = true;
 		}
 		
-		IndexVector iPattern = new IndexVector(new int[indicesToCount.length]);		// the index Vector used for iteration (I-Pattern)
-		for (int i = 0; i < iPattern.length(); i++) {								// start with I-Pattern (1,...,1)
-			iPattern.set(0, i);
+		/** computes the cells in lexicographic order, row by row (see computeRow) */
+		private void compute() {
+			int last = indicesToCount.length-1;
+			IndexVector iPattern = new IndexVector(new int[indicesToCount.length]);		// the index Vector used for iteration (I-Pattern)
+			CellScratch scratch = new CellScratch();
+			long offset = 0;															// the flat offset of the first cell of the row
+			
+			int d;
+			do {																		// iteration over the rows starts here
+				computeRow(iPattern, offset, 0, scoreMatrix.getLength(indicesToCount[last]) -1, scratch);
+				
+				// iteration logic (the dimensions before the last one)
+				for (d = last-1; d >= 0; d--) {
+					iPattern.addTo(1, d);
+					offset += planeStrides[d];
+					if (iPattern.get(d) < scoreMatrix.getLength(indicesToCount[d])) { break; }
+					offset -= planeStrides[d] * iPattern.get(d);
+					iPattern.set(0, d);
+				}
+			} while (d >= 0);															// iteration complete?
+			if (maxScoreTracker != null) {
+				maxScoreTracker.merge(scratch.maxScoreTracker);
+			}
 		}
 		
-		boolean b = false;
-		while (true) {																// iteration over I-Pattern starts here
-			ArrayList<Float> scores = new ArrayList<Float>();								// stores the scores, used to find max score
-			if (!iPattern.contains(0)) {
-				// calculation
-				IndexVector piPattern = new IndexVector(new int[indicesToCount.length]);		// the PI-Pattern vector used in case distinctions (PI-Pattern)
-				boolean c = false;
+		/**
+		 * computes the cells tile by tile, the tiles (blocks of tileLength^n cells) are visited in lexicographic order
+		 * and so are the cells of a tile. Every predecessor of a cell is in the same tile or in a lexicographically smaller tile,
+		 * but the predecessors are mostly still cached, since they were computed recently.
+		 * @param tileLength - the length of a tile in every dimension
+		 */
+		private void computeTiled(int tileLength) {
+			int last = indicesToCount.length-1;
+			int[] tileStart = new int[indicesToCount.length];							// the first cell of the actual tile
+			int[] tileEnd = new int[indicesToCount.length];								// the first cell behind the actual tile
+			IndexVector iPattern = new IndexVector(new int[indicesToCount.length]);
+			CellScratch scratch = new CellScratch();
+			
+			while (true) {																// iteration over the tiles starts here
+				long offset = 0;
+				for (int i = 0; i < tileStart.length; i++) {
+					tileEnd[i] = Math.min(tileStart[i] + tileLength, scoreMatrix.getLength(indicesToCount[i]));
+					iPattern.set(tileStart[i], i);
+					offset += planeStrides[i] * tileStart[i];
+				}
 				
-				// compute scores in the same matrix
-				while (true) {																	// iteration over (negative!) PI-Pattern starts here. (Pi-Pattern {0,-1}^n)
-					if (!piPattern.isNullVector()) {											// ignore case where PI-Pattern = (0,...,0) (total gap is not allowed)
-						// case distinctions
-						int[] predecessorIPattern = iPattern.addToArray(piPattern);				// (miss)match/gaps in different sequences
-						// add scores using all sequences (null stands for all)
-						scores.add(scoreMatrix.get(predecessorIPattern, indicesToCount) + Scorer.getInstance().getScoreSumOfPairs(getSequencesCharAraryByIndices(iPattern.toArray(), piPattern.toArray(), sequences, indicesToCount)));
+				int d;
+				do {																	// iteration over the rows of the tile
+					computeRow(iPattern, offset, tileStart[last], tileEnd[last] -1, scratch);
+					for (d = last-1; d >= 0; d--) {
+						iPattern.addTo(1, d);
+						offset += planeStrides[d];
+						if (iPattern.get(d) < tileEnd[d]) { break; }
+						offset -= planeStrides[d] * (tileEnd[d] - tileStart[d]);
+						iPattern.set(tileStart[d], d);
 					}
-					
-					// move "/// if a state is given, we need to consider previous states"-Block here
-					// update getMaxScoreCandidateIndices
-					
-					// iteration logic (PI-Pattern)	
-					piPattern.addTo(-1, piPattern.length()-1);									// iteration logic (PI-Pattern)
-					for (int i = piPattern.length()-1; i >= 0; i--) {
-						if (piPattern.get(i) == -2) {										
-							if (i == 0) {														// check iteration completeness
-								c = true;
-								break;
-							}
-							piPattern.set(0, i);
-							piPattern.addTo(-1, i-1);
-						}
+				} while (d >= 0);
+				
+				// iteration logic (tiles)
+				int i = tileStart.length-1;
+				for (; i >= 0; i--) {
+					tileStart[i] += tileLength;
+					if (tileStart[i] < scoreMatrix.getLength(indicesToCount[i])) { break; }
+					tileStart[i] = 0;
+				}
+				if (i < 0) { break; }													// iteration complete?
+			}																		// iteration over the tiles ends here
+			if (maxScoreTracker != null) {
+				maxScoreTracker.merge(scratch.maxScoreTracker);
+			}
+		}
+		
+		/** computes the cells hyperplane by hyperplane (i1+...+in = k), the cells of a hyperplane are computed in parallel */
+		private void computeWavefront() {
+			for (int k = 0; k <= maxSuffixSums[0]; k++) {
+				invokeHyperplane(k);
+			}
+		}
+		
+		/** computes the cells of the hyperplane i1+...+in = k in parallel */
+		private void invokeHyperplane(int k) {
+			wavefrontPool.invoke(new HyperplaneTask(new int[indicesToCount.length], 0, 
+					Math.max(0, k - maxSuffixSums[1]), Math.min(scoreMatrix.getLength(indicesToCount[0]) -1, k), k));
+		}
+		
+		/**
+		 * computes the cells hyperplane by hyperplane keeping only the n hyperplanes the next one depends on (see HyperplaneStorage).
+		 * The max projections the following States need are recorded hyperplane by hyperplane, the score of the Matrix
+		 * and the score at its max score indices are kept, since the hyperplanes are released at the end.
+		 * @param projectionMasks - the kept dimensions of the max projections to record
+		 */
+		private void computeHyperplanes(TreeSet<Integer> projectionMasks) {
+			HyperplaneStorage storage = scoreMatrix.getHyperplaneStorage();
+			ArrayList<MaxProjection> projections = new ArrayList<>();
+			for (int keptMask : projectionMasks) {
+				projections.add(new MaxProjection(scoreMatrix, keptMask, false));
+			}
+			int[] last = new int[indicesToCount.length];								// the last cell of the Matrix
+			for (int i = 0; i < last.length; i++) {
+				last[i] = scoreMatrix.getLength(i) -1;
+			}
+			CellScratch scratch = new CellScratch();
+			for (int k = 0; k <= maxSuffixSums[0]; k++) {
+				storage.allocateHyperplane(k);
+				if (wavefrontPool != null) {
+					invokeHyperplane(k);
+				} else {
+					computeHyperplaneCells(new IndexVector(new int[last.length]), 0, Math.max(0, k - maxSuffixSums[1]), Math.min(last[0], k), k, 0, scratch);
+				}
+				visitHyperplane(k, last, false, (iPattern, offset) -> {
+					float score = getStored(iPattern);
+					for (MaxProjection projection : projections) {
+						projection.add(score, offset, iPattern);
 					}
-					if (c) { break; }															// iteration complete?
-				}																		// iteration over PI-Pattern ends here
+				});
+				storage.releaseHyperplane(k - indicesToCount.length);					// the next hyperplanes do not depend on it
 			}
+			maxScoreTracker.merge(scratch.maxScoreTracker);
 			
-			// if a state is given, we need to consider previous states
-			if (state != null) {
-				State imaginaryPlaneState;
-				if (fullState) {
-					imaginaryPlaneState = state;
+			long lastOffset = scoreMatrix.getOffset(last);
+			storage.keep(lastOffset, scoreMatrix.get(lastOffset));						// the score of the Matrix
+			if (maxScoreTracker.getMaxScoreIndices() != null) {
+				storage.keep(scoreMatrix.getOffset(maxScoreTracker.getMaxScoreIndices()), maxScoreTracker.getMaxScoreIndicesScore());
+			}
+			storage.releaseHyperplanes();
+			int p = 0;
+			for (int keptMask : projectionMasks) {
+				scoreMatrix.setMaxProjection(keptMask, projections.get(p++));
+			}
+		}
+		
+		/**
+		 * visits the cells of the hyperplane i1+...+in = k inside the box 0 ... top in lexicographic order
+		 * @param top - the last cell of the box
+		 * @param interiorOnly - true: the cells with a 0 index are skipped
+		 * @param visitor - gets every cell (the I-Pattern is changed afterwards) and its flat offset
+		 */
+		private void visitHyperplane(int k, int[] top, boolean interiorOnly, ObjLongConsumer<IndexVector> visitor) {
+			int[] topSuffixSums = new int[top.length+1];								// the index sum of the dimensions i ... of the top cell
+			for (int i = top.length-1; i >= 0; i--) {
+				topSuffixSums[i] = topSuffixSums[i+1] + top[i];
+			}
+			visitHyperplaneCells(new IndexVector(new int[top.length]), 0, k, 0, interiorOnly ? 1 : 0, top, topSuffixSums, visitor);
+		}
+		
+		/** visits the cells of a hyperplane with the given prefix (the dimensions before d are set), see visitHyperplane */
+		private void visitHyperplaneCells(IndexVector iPattern, int d, int remaining, long offset, int min, int[] top, int[] topSuffixSums,
+				ObjLongConsumer<IndexVector> visitor) {
+			int from = Math.max(min, remaining - topSuffixSums[d+1]);
+			int to = Math.min(top[d], remaining - min * (top.length-1-d));
+			for (int x = from; x <= to; x++) {
+				iPattern.set(x, d);
+				if (d == top.length-1) {
+					visitor.accept(iPattern, offset + x * planeStrides[d]);
 				} else {
-					imaginaryPlaneState = hasseGraph.getOrCreateStateByActiveSequences(state, indicesToCount);	// the State with indicesToUse as active states (can allways be found in previous states)
+					visitHyperplaneCells(iPattern, d+1, remaining - x, offset + x * planeStrides[d], min, top, topSuffixSums, visitor);
 				}
-				
-				//System.out.println("imaginaryPlaneState: " + imaginaryPlaneState);
-				for (State previousState : imaginaryPlaneState.getDirectlyPrevious()) {								// look at previous states
-					if (! state.getPrevious().contains(previousState)) {									// look at intersection state.getPrevious() and imaginaryPlaneState.getPrevious()
-						break;
+			}
+		}
+		
+		/**
+		 * computes the cells of a hyperplane having the given prefix, dimension d in [from, to] and the index sum remaining of the dimensions d ...
+		 * @param iPattern - the cell (the dimensions before d are set)
+		 * @param d - the actual dimension
+		 * @param remaining - the index sum of the dimensions d ...
+		 * @param offset - the flat offset of the prefix (the dimensions before d)
+		 */
+		private void computeHyperplaneCells(IndexVector iPattern, int d, int from, int to, int remaining, long offset, CellScratch scratch) {
+			if (d == iPattern.length()-1) {												// the last index is determined by the sum
+				computeRow(iPattern, offset + from * planeStrides[d], from, to, scratch);
+				return;
+			}
+			for (int x = from; x <= to; x++) {
+				iPattern.set(x, d);
+				computeHyperplaneCells(iPattern, d+1, Math.max(0, remaining - x - maxSuffixSums[d+2]), 
+						Math.min(scoreMatrix.getLength(indicesToCount[d+1]) -1, remaining - x), remaining - x, offset + x * planeStrides[d], scratch);
+			}
+		}
+		
+		/** a part of a hyperplane: the cells with a given prefix and dimension d in [from, to], split until Settings.wavefrontGrain cells are left */
+		private class HyperplaneTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+			private int[] prefix;
+			private int d;
+			private int from;
+			private int to;
+			private int remaining;
+			
+			private HyperplaneTask(int[] prefix, int d, int from, int to, int remaining) {
+				this.prefix = prefix;
+				this.d = d;
+				this.from = from;
+				this.to = to;
+				this.remaining = remaining;
+			}
+			
+			@Override
+			protected void compute() {
+				long cells = to - from + 1;												// upper bound of the cells count (the last dimension is determined by the sum)
+				for (int i = d+1; i < prefix.length-1; i++) {
+					cells *= scoreMatrix.getLength(indicesToCount[i]);
+				}
+				if (cells > Settings.wavefrontGrain && to > from) {						// split the range
+					int middle = (from + to) / 2;
+					invokeAll(new HyperplaneTask(prefix, d, from, middle, remaining), new HyperplaneTask(prefix, d, middle+1, to, remaining));
+				} else if (cells > Settings.wavefrontGrain && d < prefix.length-2) {		// split the next dimension
+					int[] nextPrefix = prefix.clone();
+					nextPrefix[d] = from;
+					new HyperplaneTask(nextPrefix, d+1, Math.max(0, remaining - from - maxSuffixSums[d+2]), 
+							Math.min(scoreMatrix.getLength(indicesToCount[d+1]) -1, remaining - from), remaining - from).compute();
+				} else if (from <= to) {
+					CellScratch scratch = new CellScratch();
+					long offset = 0;
+					for (int i = 0; i < d; i++) {
+						offset += planeStrides[i] * prefix[i];
 					}
-					// for every entry of the matrix (bc u were wondering last time)
-					IndexVector maxScoreCandidateIndices = getMaxScoreCandidateIndices(state, previousState, sequences, allSequences, iPattern, indicesToCount);
-					if (maxScoreCandidateIndices != null) {
-						//IndexVector computedPiPattern = getPiPattern(state, previousState, iPattern, maxScoreCandidateIndices, indicesToCount);
-						//System.out.println("computed piPattern:\t" + computedPiPattern);
-						scores.add(previousState.getScoreMatrix().get(maxScoreCandidateIndices.toArray()));
-						//System.out.println(iPattern + " :: " + maxScoreCandidateIndices + " :: " + computedPiPattern);
+					computeHyperplaneCells(new IndexVector(prefix.clone()), d, from, to, remaining, offset, scratch);
+					if (maxScoreTracker != null) {
+						synchronized (maxScoreTracker) {
+							maxScoreTracker.merge(scratch.maxScoreTracker);
+						}
 					}
 				}
 			}
-			
-			if (scores.size() > 0) {
-				float maxScore = Collections.max(scores);								// find max Score
-				scoreMatrix.set(maxScore, iPattern.toArray(), indicesToCount);			// set max score
+		}
+		
+		/** the temporary objects of a thread computing cells */
+		private class CellScratch {
+			/** scores all the columns (PI-Patterns) of a cell at once */
+			private ColumnScorer columnScorer = new ColumnScorer(sequences.length, indicesToCount);
+			private byte[] residues = new byte[indicesToCount.length];
+			/** the hyperplanes of the neighbors of a cell by the number of hyperplanes between them (see computeRow) */
+			private float[][] hyperplanes = new float[indicesToCount.length+1][];
+			/** collects the max score of the computed cells */
+			private MaxScoreTracker maxScoreTracker = new MaxScoreTracker();
+			/** the plane dimensions of the actual row with a 0 index (bit i set: index i is 0) */
+			private int rowZeroMask;
+			/** true if the cells of the actual row have neighbors in the same Matrix (except for its first cell) */
+			private boolean rowInterior;
+			/** the previous state the last finished cell took its score from (see finishCell) */
+			private int switchIndex;
+		}
+		
+		/**
+		 * computes the cells from ... to of a row of the plane (the last dimension changes), every traversal computes its cells row by row:
+		 * the residues of the other dimensions are set once per row and the row is handed to the kernel of the storage of the Matrix
+		 * (a float array, unrolled for 2 to 5 plane sequences if no steps are recorded, a fixed-point array, a HyperplaneStorage or any other Matrix),
+		 * which reads the neighbors at the constant neighborOffsets. The kernels finish the cells with finishCell if needed.
+		 * @param iPattern - the row (the dimensions before the last one are set)
+		 * @param offset - the flat offset of the first cell of the row (the cell from)
+		 * @param scratch - the temporary objects of the actual thread
+		 */
+		private void computeRow(IndexVector iPattern, long offset, int from, int to, CellScratch scratch) {
+			int last = indicesToCount.length-1;
+			scratch.rowZeroMask = 0;
+			for (int i = 0; i < last; i++) {
+				int index = iPattern.get(i);
+				if (index == 0) {
+					scratch.rowZeroMask |= 1 << i;
+				} else {
+					scratch.residues[i] = sequences[indicesToCount[i]].getCode(index-1);
+				}
 			}
+			scratch.rowInterior = scratch.rowZeroMask == 0;
 			
-			// iteration logic (I-Pattern)
-			iPattern.addTo(1, iPattern.length()-1);									// iteration logic (I-Pattern)
-			for (int i = iPattern.length()-1; i >= 0; i--) {
-				if (iPattern.get(i) == scoreMatrix.getLength(indicesToCount[i])) {
-					if (i == 0) {													// check iteration completeness
-						b = true;														
-						break;
+			if (hyperplaneStorage != null) {
+				computeHyperplaneRow(iPattern, offset, from, to, scratch);
+			} else if (scoreMatrix.getFloatArray() != null && traceback == null) {
+				switch (indicesToCount.length) {
+				case 2: computeFloatRow2(iPattern, offset, from, to, scratch); break;
+				case 3: computeFloatRow3(iPattern, offset, from, to, scratch); break;
+				case 4: computeFloatRow4(iPattern, offset, from, to, scratch); break;
+				case 5: computeFloatRow5(iPattern, offset, from, to, scratch); break;
+				default: computeFloatRow(iPattern, offset, from, to, scratch);
+				}
+			} else if (scoreMatrix.getFloatArray() != null) {
+				computeFloatRow(iPattern, offset, from, to, scratch);
+			} else if (scoreMatrix.getIntArray() != null) {
+				computeIntRow(iPattern, offset, from, to, scratch);
+			} else if (scoreMatrix.getShortArray() != null) {
+				computeShortRow(iPattern, offset, from, to, scratch);
+			} else {
+				computeMatrixRow(iPattern, offset, from, to, scratch);
+			}
+		}
+		
+		/**
+		 * finishes a cell after the max over its neighbors: the scores of the previous states are added to it (a neighbor wins a tie, so does the first previous state),
+		 * the final value of the cell is tracked by the full pass and its step is recorded (see Traceback)
+		 * @param x - the last index of the cell
+		 * @param offset - the flat offset of the cell
+		 * @param maxScore - the max score of the neighbors (-infinity if the cell has none)
+		 * @param bestMask - the PI-Pattern of the first maximal neighbor
+		 * @param interior - true if the cell has neighbors in the same Matrix
+		 * @return the score of the cell, NaN if no previous state reaches a boundary cell (its value is kept),
+		 * the index of the previous state the score was taken from is left in scratch.switchIndex (-1: a neighbor or none)
+		 */
+		private float finishCell(IndexVector iPattern, int x, long offset, float maxScore, int bestMask, boolean interior, CellScratch scratch) {
+			boolean hasScore = interior;
+			int switchIndex = -1;
+			iPattern.set(x, iPattern.length()-1);
+			for (int t = 0; t < transitions.size(); t++) {
+				// for every entry of the matrix (bc u were wondering last time)
+				Transition transition = transitions.get(t);
+				long candidate = transition.getCandidate(iPattern);
+				if (candidate >= 0) {
+					float score = transition.getScore(candidate);
+					if (transitionPreviousIndices != null && (score > maxScore || score == maxScore && switchIndex > transitionPreviousIndices[t])) {
+						switchIndex = transitionPreviousIndices[t];
 					}
-					iPattern.set(0, i);
-					iPattern.addTo(1, i-1);
+					maxScore = Math.max(maxScore, score);
+					hasScore = true;
 				}
 			}
-			if (b) { break; }														// iteration complete?
-		}																		// iteration over I-Pattern (I-Pattern) ends here
-	}
-	
-	/**
-	 * 
-	 * @param actualState - the actual State
-	 * @param previousState - the state to find the max score in
-	 * @param sequences - the sequences used
-	 * @param allSequences - all the sequences
-	 * @param actualStateIPattern - the actual iPattern
-	 * @return
-	 */
-	private IndexVector getMaxScoreCandidateIndices(State actualState, State previousState, Sequence[] sequences, Sequence[] allSequences, IndexVector actualStateIPattern, int[] indicesToCount){
-		if (previousState.getActive().size() == 0) { return null; }								// nothing to find here
+			
+			if (fullState) {															// the final value of the cell
+				scratch.maxScoreTracker.add(hasScore ? maxScore : hyperplaneStorage != null ? getStored(iPattern) : scoreMatrix.get(offset), iPattern);
+			}
+			if (traceback != null && switchIndex >= 0) {								// the backtrack follows the recorded steps
+				traceback.setSwitch(offset, switchIndex);
+			} else if (traceback != null && interior) {
+				traceback.set(offset, bestMask);
+			}
+			scratch.switchIndex = switchIndex;
+			return hasScore ? maxScore : Float.NaN;
+		}
 		
-		ArrayList<Integer> actualActiveIndices;
-		if (indicesToCount == null) {
-			actualActiveIndices = actualState.getActive();	
-		} else {
-			// take only indicesToCount
-			actualActiveIndices = new ArrayList<>();
-			for (Integer index : indicesToCount) {
-				actualActiveIndices.add(actualState.getActive().get(index));
+		/** computeRow for a float array Matrix (the first maximal neighbor is kept as the step of the cell, scores are never NaN or -0) */
+		private void computeFloatRow(IndexVector iPattern, long offset, int from, int to, CellScratch scratch) {
+			float[] values = scoreMatrix.getFloatArray();
+			int last = indicesToCount.length-1;
+			Sequence lastSequence = sequences[indicesToCount[last]];
+			int stride = (int) planeStrides[last];
+			int o = (int) offset;
+			for (int x = from; x <= to; x++, o += stride) {
+				if (scratch.rowInterior && x > 0) {
+					scratch.residues[last] = lastSequence.getCode(x-1);
+					float[] columnScores = scratch.columnScorer.score(scratch.residues);	// the Sum of Pairs scores of all the PI-Patterns of this cell
+					float maxScore = Float.NEGATIVE_INFINITY;
+					int bestMask = 0;
+					for (int i = 0; i < neighborOffsets.length; i++) {
+						float score = values[o + (int) neighborOffsets[i]] + columnScores[neighborMasks[i]];
+						if (score > maxScore) { maxScore = score; bestMask = neighborMasks[i]; }
+					}
+					if (finishing) {
+						maxScore = finishCell(iPattern, x, o, maxScore, bestMask, true, scratch);
+					}
+					values[o] = maxScore;
+				} else if (finishing) {
+					float score = finishCell(iPattern, x, o, Float.NEGATIVE_INFINITY, 0, false, scratch);
+					if (!Float.isNaN(score)) { values[o] = score; }
+				}
 			}
 		}
-
-		ArrayList<Integer> matchingIndices = new ArrayList<>();
-		ArrayList<Integer> missingIndices = new ArrayList<>();									// missing in actualState
-		IndexVector maxScoreCandidateIPattern = null; 											// collecting the score candidates in here
-		float maxScore = Float.NEGATIVE_INFINITY;
-		
-		for (Integer index : previousState.getActive()) {										// find matching and missing indices
-			if (actualActiveIndices.contains(index)) {
-				matchingIndices.add(index);
-			} else {
-				missingIndices.add(index);
+		
+		/** computeFloatRow unrolled for 2 plane sequences: the neighbor offsets are locals and the PI-Pattern masks constants (in the order of neighborMasks) */
+		private void computeFloatRow2(IndexVector iPattern, long offset, int from, int to, CellScratch scratch) {
+			float[] values = scoreMatrix.getFloatArray();
+			Sequence lastSequence = sequences[indicesToCount[1]];
+			int stride = (int) planeStrides[1];
+			int n0 = (int) neighborOffsets[0], n1 = (int) neighborOffsets[1], n2 = (int) neighborOffsets[2];
+			int o = (int) offset;
+			for (int x = from; x <= to; x++, o += stride) {
+				if (scratch.rowInterior && x > 0) {
+					scratch.residues[1] = lastSequence.getCode(x-1);
+					float[] c = scratch.columnScorer.score(scratch.residues);
+					float maxScore = values[o + n0] + c[2];
+					maxScore = Math.max(maxScore, values[o + n1] + c[1]);
+					maxScore = Math.max(maxScore, values[o + n2] + c[3]);
+					if (finishing) {
+						maxScore = finishCell(iPattern, x, o, maxScore, 0, true, scratch);
+					}
+					values[o] = maxScore;
+				} else if (finishing) {
+					float score = finishCell(iPattern, x, o, Float.NEGATIVE_INFINITY, 0, false, scratch);
+					if (!Float.isNaN(score)) { values[o] = score; }
+				}
 			}
 		}
 		
-		IndexVector matchingIPattern = new IndexVector(new int[matchingIndices.size()]);		// the index Vector used for iteration (I-Pattern)s
+		/** computeFloatRow unrolled for 3 plane sequences: the neighbor offsets are locals and the PI-Pattern masks constants (in the order of neighborMasks) */
+		private void computeFloatRow3(IndexVector iPattern, long offset, int from, int to, CellScratch scratch) {
+			float[] values = scoreMatrix.getFloatArray();
+			Sequence lastSequence = sequences[indicesToCount[2]];
+			int stride = (int) planeStrides[2];
+			int n0 = (int) neighborOffsets[0], n1 = (int) neighborOffsets[1], n2 = (int) neighborOffsets[2], n3 = (int) neighborOffsets[3],
+					n4 = (int) neighborOffsets[4], n5 = (int) neighborOffsets[5], n6 = (int) neighborOffsets[6];
+			int o = (int) offset;
+			for (int x = from; x <= to; x++, o += stride) {
+				if (scratch.rowInterior && x > 0) {
+					scratch.residues[2] = lastSequence.getCode(x-1);
+					float[] c = scratch.columnScorer.score(scratch.residues);
+					float maxScore = values[o + n0] + c[4];
+					maxScore = Math.max(maxScore, values[o + n1] + c[2]);
+					maxScore = Math.max(maxScore, values[o + n2] + c[6]);
+					maxScore = Math.max(maxScore, values[o + n3] + c[1]);
+					maxScore = Math.max(maxScore, values[o + n4] + c[5]);
+					maxScore = Math.max(maxScore, values[o + n5] + c[3]);
+					maxScore = Math.max(maxScore, values[o + n6] + c[7]);
+					if (finishing) {
+						maxScore = finishCell(iPattern, x, o, maxScore, 0, true, scratch);
+					}
+					values[o] = maxScore;
+				} else if (finishing) {
+					float score = finishCell(iPattern, x, o, Float.NEGATIVE_INFINITY, 0, false, scratch);
+					if (!Float.isNaN(score)) { values[o] = score; }
+				}
+			}
+		}
 		
-//		//DEBUGGING
-//		System.out.println("actualState:             " + actualState);
-//		if (indicesToCount != null) { System.out.print("indicesToCount:          ");
-//			for (int index : indicesToCount) {
-//				System.out.print(index + ",");	
-//			}
-//		} System.out.println();
-//		System.out.println("actual indices:          " + actualActiveIndices);
-//		System.out.println("previous indices:        " + previousState.getActive());
+		/** computeFloatRow unrolled for 4 plane sequences: the neighbor offsets are locals and the PI-Pattern masks constants (in the order of neighborMasks) */
+		private void computeFloatRow4(IndexVector iPattern, long offset, int from, int to, CellScratch scratch) {
+			float[] values = scoreMatrix.getFloatArray();
+			Sequence lastSequence = sequences[indicesToCount[3]];
+			int stride = (int) planeStrides[3];
+			int n0 = (int) neighborOffsets[0], n1 = (int) neighborOffsets[1], n2 = (int) neighborOffsets[2], n3 = (int) neighborOffsets[3],
+					n4 = (int) neighborOffsets[4], n5 = (int) neighborOffsets[5], n6 = (int) neighborOffsets[6], n7 = (int) neighborOffsets[7],
+					n8 = (int) neighborOffsets[8], n9 = (int) neighborOffsets[9], n10 = (int) neighborOffsets[10], n11 = (int) neighborOffsets[11],
+					n12 = (int) neighborOffsets[12], n13 = (int) neighborOffsets[13], n14 = (int) neighborOffsets[14];
+			int o = (int) offset;
+			for (int x = from; x <= to; x++, o += stride) {
+				if (scratch.rowInterior && x > 0) {
+					scratch.residues[3] = lastSequence.getCode(x-1);
+					float[] c = scratch.columnScorer.score(scratch.residues);
+					float maxScore = values[o + n0] + c[8];
+					maxScore = Math.max(maxScore, values[o + n1] + c[4]);
+					maxScore = Math.max(maxScore, values[o + n2] + c[12]);
+					maxScore = Math.max(maxScore, values[o + n3] + c[2]);
+					maxScore = Math.max(maxScore, values[o + n4] + c[10]);
+					maxScore = Math.max(maxScore, values[o + n5] + c[6]);
+					maxScore = Math.max(maxScore, values[o + n6] + c[14]);
+					maxScore = Math.max(maxScore, values[o + n7] + c[1]);
+					maxScore = Math.max(maxScore, values[o + n8] + c[9]);
+					maxScore = Math.max(maxScore, values[o + n9] + c[5]);
+					maxScore = Math.max(maxScore, values[o + n10] + c[13]);
+					maxScore = Math.max(maxScore, values[o + n11] + c[3]);
+					maxScore = Math.max(maxScore, values[o + n12] + c[11]);
+					maxScore = Math.max(maxScore, values[o + n13] + c[7]);
+					maxScore = Math.max(maxScore, values[o + n14] + c[15]);
+					if (finishing) {
+						maxScore = finishCell(iPattern, x, o, maxScore, 0, true, scratch);
+					}
+					values[o] = maxScore;
+				} else if (finishing) {
+					float score = finishCell(iPattern, x, o, Float.NEGATIVE_INFINITY, 0, false, scratch);
+					if (!Float.isNaN(score)) { values[o] = score; }
+				}
+			}
+		}
 		
-		int matchingIndex = 0;
-		for (int i = 0; i < actualStateIPattern.length(); i++) {								// reduce actualStateIPattern to matchingIPattern
-			if (previousState.getActive().contains(actualActiveIndices.get(i))) {				// previousState.contains(indexOfActualState) === actualState.contains(indexOfPreviousState) since indices are ordered
-				matchingIPattern.set(actualStateIPattern.get(i), matchingIndex);
-				matchingIndex++;
+		/** computeFloatRow unrolled for 5 plane sequences: the neighbor offsets are locals and the PI-Pattern masks constants (in the order of neighborMasks) */
+		private void computeFloatRow5(IndexVector iPattern, long offset, int from, int to, CellScratch scratch) {
+			float[] values = scoreMatrix.getFloatArray();
+			Sequence lastSequence = sequences[indicesToCount[4]];
+			int stride = (int) planeStrides[4];
+			int n0 = (int) neighborOffsets[0], n1 = (int) neighborOffsets[1], n2 = (int) neighborOffsets[2], n3 = (int) neighborOffsets[3],
+					n4 = (int) neighborOffsets[4], n5 = (int) neighborOffsets[5], n6 = (int) neighborOffsets[6], n7 = (int) neighborOffsets[7],
+					n8 = (int) neighborOffsets[8], n9 = (int) neighborOffsets[9], n10 = (int) neighborOffsets[10], n11 = (int) neighborOffsets[11],
+					n12 = (int) neighborOffsets[12], n13 = (int) neighborOffsets[13], n14 = (int) neighborOffsets[14], n15 = (int) neighborOffsets[15],
+					n16 = (int) neighborOffsets[16], n17 = (int) neighborOffsets[17], n18 = (int) neighborOffsets[18], n19 = (int) neighborOffsets[19],
+					n20 = (int) neighborOffsets[20], n21 = (int) neighborOffsets[21], n22 = (int) neighborOffsets[22], n23 = (int) neighborOffsets[23],
+					n24 = (int) neighborOffsets[24], n25 = (int) neighborOffsets[25], n26 = (int) neighborOffsets[26], n27 = (int) neighborOffsets[27],
+					n28 = (int) neighborOffsets[28], n29 = (int) neighborOffsets[29], n30 = (int) neighborOffsets[30];
+			int o = (int) offset;
+			for (int x = from; x <= to; x++, o += stride) {
+				if (scratch.rowInterior && x > 0) {
+					scratch.residues[4] = lastSequence.getCode(x-1);
+					float[] c = scratch.columnScorer.score(scratch.residues);
+					float maxScore = values[o + n0] + c[16];
+					maxScore = Math.max(maxScore, values[o + n1] + c[8]);
+					maxScore = Math.max(maxScore, values[o + n2] + c[24]);
+					maxScore = Math.max(maxScore, values[o + n3] + c[4]);
+					maxScore = Math.max(maxScore, values[o + n4] + c[20]);
+					maxScore = Math.max(maxScore, values[o + n5] + c[12]);
+					maxScore = Math.max(maxScore, values[o + n6] + c[28]);
+					maxScore = Math.max(maxScore, values[o + n7] + c[2]);
+					maxScore = Math.max(maxScore, values[o + n8] + c[18]);
+					maxScore = Math.max(maxScore, values[o + n9] + c[10]);
+					maxScore = Math.max(maxScore, values[o + n10] + c[26]);
+					maxScore = Math.max(maxScore, values[o + n11] + c[6]);
+					maxScore = Math.max(maxScore, values[o + n12] + c[22]);
+					maxScore = Math.max(maxScore, values[o + n13] + c[14]);
+					maxScore = Math.max(maxScore, values[o + n14] + c[30]);
+					maxScore = Math.max(maxScore, values[o + n15] + c[1]);
+					maxScore = Math.max(maxScore, values[o + n16] + c[17]);
+					maxScore = Math.max(maxScore, values[o + n17] + c[9]);
+					maxScore = Math.max(maxScore, values[o + n18] + c[25]);
+					maxScore = Math.max(maxScore, values[o + n19] + c[5]);
+					maxScore = Math.max(maxScore, values[o + n20] + c[21]);
+					maxScore = Math.max(maxScore, values[o + n21] + c[13]);
+					maxScore = Math.max(maxScore, values[o + n22] + c[29]);
+					maxScore = Math.max(maxScore, values[o + n23] + c[3]);
+					maxScore = Math.max(maxScore, values[o + n24] + c[19]);
+					maxScore = Math.max(maxScore, values[o + n25] + c[11]);
+					maxScore = Math.max(maxScore, values[o + n26] + c[27]);
+					maxScore = Math.max(maxScore, values[o + n27] + c[7]);
+					maxScore = Math.max(maxScore, values[o + n28] + c[23]);
+					maxScore = Math.max(maxScore, values[o + n29] + c[15]);
+					maxScore = Math.max(maxScore, values[o + n30] + c[31]);
+					if (finishing) {
+						maxScore = finishCell(iPattern, x, o, maxScore, 0, true, scratch);
+					}
+					values[o] = maxScore;
+				} else if (finishing) {
+					float score = finishCell(iPattern, x, o, Float.NEGATIVE_INFINITY, 0, false, scratch);
+					if (!Float.isNaN(score)) { values[o] = score; }
+				}
 			}
 		}
 		
-		//System.out.println("matchingIndices:         " + matchingIndices);
-		//System.out.println("missingIndices(in act.): " + missingIndices);
-//		System.out.println("actualStateIPattern:    " + actualStateIPattern);
-//		System.out.println("matchingIPattern:       " + matchingIPattern);
+		/** computeRow for a fixed-point int array Matrix (integer scoring, the scores are exact floats) */
+		private void computeIntRow(IndexVector iPattern, long offset, int from, int to, CellScratch scratch) {
+			int[] values = scoreMatrix.getIntArray();
+			int last = indicesToCount.length-1;
+			Sequence lastSequence = sequences[indicesToCount[last]];
+			int stride = (int) planeStrides[last];
+			int o = (int) offset;
+			for (int x = from; x <= to; x++, o += stride) {
+				if (scratch.rowInterior && x > 0) {
+					scratch.residues[last] = lastSequence.getCode(x-1);
+					float[] columnScores = scratch.columnScorer.score(scratch.residues);
+					float maxScore = Float.NEGATIVE_INFINITY;
+					int bestMask = 0;
+					for (int i = 0; i < neighborOffsets.length; i++) {
+						float score = values[o + (int) neighborOffsets[i]] + columnScores[neighborMasks[i]];
+						if (score > maxScore) { maxScore = score; bestMask = neighborMasks[i]; }
+					}
+					if (finishing) {
+						maxScore = finishCell(iPattern, x, o, maxScore, bestMask, true, scratch);
+					}
+					values[o] = Math.round(maxScore);
+				} else if (finishing) {
+					float score = finishCell(iPattern, x, o, Float.NEGATIVE_INFINITY, 0, false, scratch);
+					if (!Float.isNaN(score)) { values[o] = Math.round(score); }
+				}
+			}
+		}
 		
-		if (matchingIndices.size() == 0) {
-			return previousState.getMaxScoreIndices();
+		/** computeRow for a fixed-point short array Matrix (integer scoring with a small score range) */
+		private void computeShortRow(IndexVector iPattern, long offset, int from, int to, CellScratch scratch) {
+			short[] values = scoreMatrix.getShortArray();
+			int last = indicesToCount.length-1;
+			Sequence lastSequence = sequences[indicesToCount[last]];
+			int stride = (int) planeStrides[last];
+			int o = (int) offset;
+			for (int x = from; x <= to; x++, o += stride) {
+				if (scratch.rowInterior && x > 0) {
+					scratch.residues[last] = lastSequence.getCode(x-1);
+					float[] columnScores = scratch.columnScorer.score(scratch.residues);
+					float maxScore = Float.NEGATIVE_INFINITY;
+					int bestMask = 0;
+					for (int i = 0; i < neighborOffsets.length; i++) {
+						float score = values[o + (int) neighborOffsets[i]] + columnScores[neighborMasks[i]];
+						if (score > maxScore) { maxScore = score; bestMask = neighborMasks[i]; }
+					}
+					if (finishing) {
+						maxScore = finishCell(iPattern, x, o, maxScore, bestMask, true, scratch);
+					}
+					values[o] = (short) Math.round(maxScore);
+				} else if (finishing) {
+					float score = finishCell(iPattern, x, o, Float.NEGATIVE_INFINITY, 0, false, scratch);
+					if (!Float.isNaN(score)) { values[o] = (short) Math.round(score); }
+				}
+			}
 		}
 		
-		IndexVector previousSpaceKandidate = new IndexVector(new int[previousState.getActive().size()]);// the save the previous space candidate
-				// case distinctions - find candidates in reduced (matching) space
-				int[] matchingPredecessorIPattern = matchingIPattern.toArray();							// (miss)match/gaps in the matching sequences - candidates in reduced (matching) space
-				// multiply matching candidates to previous space cantidates
-				ArrayList<Integer> previousSpaceRunnungIndices = new ArrayList<>();						// the indices to iterate over to get multiplied candidates in previous state space
-				int j = 0;
-				for (int i = 0; i < previousState.getActive().size(); i++) {
-					if (j < matchingIndices.size() && previousState.getActive().get(i) == matchingIndices.get(j)) {
-						previousSpaceKandidate.set(matchingPredecessorIPattern[j], i);
-						j++;
-					} else {
-						previousSpaceKandidate.set(1, i);												// since i pattern starts at 1
-						previousSpaceRunnungIndices.add(i);
+		/** computeRow for any other Matrix (off-heap or memory-mapped, read and written through the Matrix) */
+		private void computeMatrixRow(IndexVector iPattern, long offset, int from, int to, CellScratch scratch) {
+			int last = indicesToCount.length-1;
+			Sequence lastSequence = sequences[indicesToCount[last]];
+			long stride = planeStrides[last];
+			for (int x = from; x <= to; x++, offset += stride) {
+				if (scratch.rowInterior && x > 0) {
+					scratch.residues[last] = lastSequence.getCode(x-1);
+					float[] columnScores = scratch.columnScorer.score(scratch.residues);
+					float maxScore = Float.NEGATIVE_INFINITY;
+					int bestMask = 0;
+					for (int i = 0; i < neighborOffsets.length; i++) {
+						float score = scoreMatrix.get(offset + neighborOffsets[i]) + columnScores[neighborMasks[i]];
+						if (score > maxScore) { maxScore = score; bestMask = neighborMasks[i]; }
 					}
+					if (finishing) {
+						maxScore = finishCell(iPattern, x, offset, maxScore, bestMask, true, scratch);
+					}
+					scoreMatrix.set(maxScore, offset);
+				} else if (finishing) {
+					float score = finishCell(iPattern, x, offset, Float.NEGATIVE_INFINITY, 0, false, scratch);
+					if (!Float.isNaN(score)) { scoreMatrix.set(score, offset); }
 				}
-				// run over previousSpaceRunnungIndices here
-				boolean d = false;
-				IndexVector runningIndices = new IndexVector(previousSpaceRunnungIndices);
-//				System.out.println("runningIndices: \t" + runningIndices);// DEBUGGING
-				while (true) {																						// iteration over previousSpaceRunnungIndices starts here. (previousSpaceRunnungIndices {0,n}^n)
-					if (previousSpaceKandidate.hasNegetiveEntry()) { break; }
-					
-					float score = previousState.getScoreMatrix().get(previousSpaceKandidate.toArray());
-					//System.out.println("max candidate: " + maxScoreCandidateIPattern + " : " + maxScore);
-//					System.out.println("candidate: \t\t" + previousSpaceKandidate + " : " + previousState.getScoreMatrix().get(previousSpaceKandidate.toArray()) + " = " + score);
-					if (score > maxScore) {
-						maxScoreCandidateIPattern = previousSpaceKandidate.clone();
-						maxScore = score;
-//						System.out.println("new max candidate:\t" + maxScoreCandidateIPattern + " : " + score);
+			}
+		}
+		
+		/**
+		 * computeRow for a HyperplaneStorage: the cells are read from and written to the hyperplanes at running offsets and the faces,
+		 * the steps of the interior cells of the recomputed hyperplanes are recorded (see LinearSpaceTrace)
+		 */
+		private void computeHyperplaneRow(IndexVector iPattern, long offset, int from, int to, CellScratch scratch) {
+			int last = indicesToCount.length-1;
+			int rowLowMask = 0;															// bit i set: index i is 1 (the neighbors with its residue are boundary cells)
+			int sum = from;																// the index sum of the cell (its hyperplane)
+			long hyperplaneOffset = from * hyperplaneStrides[last];						// the offset of the cell in its hyperplane
+			for (int i = 0; i < last; i++) {
+				int index = iPattern.get(i);
+				if (index == 1) { rowLowMask |= 1 << i; }
+				sum += index;
+				hyperplaneOffset += index * hyperplaneStrides[i];
+			}
+			Sequence lastSequence = sequences[indicesToCount[last]];
+			long stride = planeStrides[last];
+			
+			for (int x = from; x <= to; x++, offset += stride, sum++, hyperplaneOffset += hyperplaneStrides[last]) {
+				boolean interior = scratch.rowInterior && x > 0;						// the cell has predecessors in the same matrix
+				if (!interior && !finishing) { continue; }
+				float maxScore = Float.NEGATIVE_INFINITY;
+				int bestMask = 0;														// the PI-Pattern of the best neighbor
+				int face = getFace(x == 0 ? scratch.rowZeroMask | 1 << last : scratch.rowZeroMask);
+				float[] cells = face < faceStrides.length ? hyperplaneStorage.getFace(face) : hyperplaneStorage.getHyperplane(sum);
+				long cellOffset = face < faceStrides.length ? getFaceOffset(iPattern, x, face) : hyperplaneOffset;
+				if (interior) {
+					scratch.residues[last] = lastSequence.getCode(x-1);
+					float[] columnScores = scratch.columnScorer.score(scratch.residues);
+					int lowMask = x == 1 ? rowLowMask | 1 << last : rowLowMask;
+					for (int k = 1; k < scratch.hyperplanes.length; k++) {
+						scratch.hyperplanes[k] = hyperplaneStorage.getHyperplane(sum - k);
 					}
-					
-					if (runningIndices.length() == 0) { break; }
-//					if (previousSpaceKandidate.contains(0)) {
-//						//System.out.println(previousSpaceKandidate + " is not a viable candidate"); 
-//						break; 
-//					}
-					
-					// DEBUGGING
-					//System.out.println("candidate: " + previousSpaceKandidate);
-					//for (int i = 0; i < previousSpaceKandidate.length(); i++) {
-						//System.out.print(allSequences[previousState.getActive().get(i)] + "[");
-						//System.out.print(previousSpaceKandidate.get(i) + "] = ");
-						//System.out.println(allSequences[previousState.getActive().get(i)].toCharArray()[previousSpaceKandidate.get(i)-1]);
-					//}
-					//System.out.println(" Score: " + previousState.getScoreMatrix().get(previousSpaceKandidate.toArray()));
-					
-					// iteration logic (previousSpaceRunningIndices)
-					previousSpaceKandidate.addTo(1, runningIndices.get(runningIndices.length()-1));					// iteration logic (previousSpaceRunnungIndices)	
-					for (int i = runningIndices.length()-1; i >= 0; i--) {
-						//System.out.println("runningSequenceIndex:  " + runningIndices.get(i));
-						//System.out.println("runningSequence:      " + allSequences[previousState.getActive().get(runningIndices.get(i))]);
-						if (previousSpaceKandidate.get(runningIndices.get(i)) == allSequences[previousState.getActive().get(runningIndices.get(i))].getLength() + 1) {										
-							if (i == 0) {																			// check iteration completeness
-								d = true;
-								break;
-							}
-							previousSpaceKandidate.set(1, runningIndices.get(i));
-							previousSpaceKandidate.addTo(1, runningIndices.get(i-1));
-						}
+					for (int i = 0; i < neighborOffsets.length; i++) {
+						int neighborFace = getFace(neighborMasks[i] & lowMask);			// the neighbor is a boundary cell if it has a 0 index
+						float[] hyperplane = scratch.hyperplanes[neighborSumDeltas[i]];
+						float score = neighborFace < faceStrides.length ? hyperplaneStorage.getFace(neighborFace)[(int) (getFaceOffset(iPattern, x, neighborFace) + neighborFaceOffsets[neighborFace][i])]
+								: hyperplane != null ? hyperplane[(int) (hyperplaneOffset + neighborHyperplaneOffsets[i])]
+								: scoreMatrix.get(offset + neighborOffsets[i]);			// a kept cell
+						score += columnScores[neighborMasks[i]];
+						if (score > maxScore) { maxScore = score; bestMask = neighborMasks[i]; }
 					}
-					if (d) { break; }
 				}
-				
+				scratch.switchIndex = -1;
+				if (finishing) {
+					maxScore = finishCell(iPattern, x, offset, maxScore, bestMask, interior, scratch);
+				}
+				if (!Float.isNaN(maxScore)) {
+					cells[(int) cellOffset] = maxScore;
+				}
+				if (hyperplaneTracebacks != null && interior && hyperplaneTracebacks[sum] != null) {
+					if (scratch.switchIndex >= 0) {
+						hyperplaneTracebacks[sum].setSwitch(hyperplaneOffset, scratch.switchIndex);
+					} else {
+						hyperplaneTracebacks[sum].set(hyperplaneOffset, bestMask);
+					}
+				}
+			}
+		}
 		
-		if (maxScoreCandidateIPattern != null) {
-			//System.out.println("maxscoreCandidateIPattern: " + maxScoreCandidateIPattern + " Score: " + maxScore);	// DEBUGGING
-			return maxScoreCandidateIPattern;
-		} else {
-			//System.out.println("NO CANDIDATES");
-			return null;																				// without iPattern no piPattern
+		/**
+		 * @param zeroMask - the plane dimensions of a cell with a 0 index (bit i set: index i is 0)
+		 * @return the face of the hyperplaneStorage holding the cell (the dimension of its first 0 index), the number of faces for an interior cell
+		 */
+		private int getFace(int zeroMask) {
+			return zeroMask == 0 ? firstOutside : Math.min(indicesToCount[Integer.numberOfTrailingZeros(zeroMask)], firstOutside);
 		}
-	}
-	
-	/**
-	 * @param actualState - the actual State
-	 * @param previousState - the state to find the max score in
-	 * @param actualStateIPattern - the actual iPattern
-	 * @param previousStateIPattern - the previus iPattern
-	 * @return the pi pattern between these two iPatterns
-	 */
-	private IndexVector getPiPattern(State actualState, State previousState, IndexVector actualStateIPattern, IndexVector previousStateIPattern, int[] indicesToCount) {
-		ArrayList<Integer> actualActiveIndices;
-		if (indicesToCount == null) {
-			actualActiveIndices = actualState.getActive();	
-		} else {
-			// take only indicesToCount
-			actualActiveIndices = new ArrayList<>();
-			for (Integer index : indicesToCount) {
-				actualActiveIndices.add(actualState.getActive().get(index));
+		
+		/** @return the offset of the cell (the last index is x) in the given face of the hyperplaneStorage (the boundary cells are few, so it is computed on demand) */
+		private long getFaceOffset(IndexVector iPattern, int x, int face) {
+			int last = iPattern.length()-1;
+			long faceOffset = x * faceStrides[face][last];
+			for (int i = 0; i < last; i++) {
+				faceOffset += iPattern.get(i) * faceStrides[face][i];
 			}
+			return faceOffset;
 		}
 		
-		IndexVector piPattern = new IndexVector(new int[actualActiveIndices.size()]);
-		for (int i = 0; i < actualActiveIndices.size(); i++) {
-			if (previousState.getActive().contains(actualActiveIndices.get(i))) {
-				piPattern.set(previousStateIPattern.get(previousState.getActive().indexOf(actualActiveIndices.get(i))) - actualStateIPattern.get(i), i);	// subtraction on match
-			} else {
-				piPattern.set(-1, i);																	// read one if new sequence is opened, so pipattern is 1 (-1 for negative pipattern)
+		/** @return the value of a cell of the full pass read from its face or hyperplane of the hyperplaneStorage (without decoding a flat offset) */
+		private float getStored(IndexVector iPattern) {
+			int zeroMask = 0;
+			int sum = 0;
+			for (int i = 0; i < iPattern.length(); i++) {
+				if (iPattern.get(i) == 0) { zeroMask |= 1 << i; }
+				sum += iPattern.get(i);
+			}
+			int face = getFace(zeroMask);
+			long[] strides = face < faceStrides.length ? faceStrides[face] : hyperplaneStrides;
+			long storedOffset = 0;
+			for (int i = 0; i < iPattern.length(); i++) {
+				storedOffset += iPattern.get(i) * strides[i];
 			}
+			return (face < faceStrides.length ? hyperplaneStorage.getFace(face) : hyperplaneStorage.getHyperplane(sum))[(int) storedOffset];
 		}
-		return piPattern;
 	}
 	
 	/**
-	 * returns the actual vertical vector of the Alignment (letters), the actual character of each sequence or Scorer.GAP_CHAR if pi at this column and for this sequence is 0 (piPattern[i] == 0)
-	 * @param iPattern the actual I-Pattern
-	 * @param piPattern the Pi-Pattern
-	 * @param sequences all the considered sequences
-	 * @param indicesToUse indices of sequences to use here (if null use all)
-	 * @return the actual vertical vector of the Alignment
+	 * A LinearSpaceTrace recovers the backtrack path through the interior cells of a Matrix keeping its boundary cells and checkpoints only (see HyperplaneStorage).
+	 * A hyperplane depends on the n hyperplanes before only, so the path from a cell down to a lower hyperplane is found by recursive
+	 * midpoint splitting (the N-dimensional generalization of Hirschberg): the hyperplanes up to the middle one are recomputed keeping the last n,
+	 * the upper half of the path is traced from them and the lower half from the cell the upper half ends on.
+	 * Every level of the recursion recomputes at most half of the cells below the first cell of the path, a few hyperplanes per level are kept.
+	 * If the Matrix keeps checkpoints, the path is traced from one checkpoint down to the next one (the recursion starts at the checkpoint).
+	 * The hyperplanes the path is walked on record the step every cell took its max score from while they are recomputed (see Traceback),
+	 * the path follows them up to the first boundary cell or up to the first cell taking its score from a previous State (a switch).
 	 */
-	private char[] getSequencesCharAraryByIndices(int[] iPattern, int[] piPattern, Sequence[] sequences, int[]indicesToUse){
-		// here we got the reduced i- and pi- patterns but the full sequences array
-		// if indicesToUse == null use all
-		if (indicesToUse == null) {
-			indicesToUse = new int[sequences.length];
-			for (int i = 0; i < indicesToUse.length; i++) {
-				indicesToUse[i] = i;
+	private class LinearSpaceTrace {
+		/** the full pass of the State (recomputes the cells) */
+		private PlanePass planePass;
+		/** the storage of the score Matrix of the State */
+		private HyperplaneStorage storage;
+		/** the temporary objects of the recomputation */
+		private PlanePass.CellScratch scratch;
+		/** the number of hyperplanes traced without splitting (they are kept at once) */
+		private int baseHyperplanes;
+		/** the PI-Pattern masks of the steps of the path (from its first cell on) */
+		private ArrayList<Integer> steps = new ArrayList<>();
+		/** true if the path ends with a switch to a previous State */
+		private boolean switched = false;
+		/** the index of the previous State of the switch (in State.getPrevious()) */
+		private int switchIndex = -1;
+		/** the number of previous States of the State (the switch targets of a step) */
+		private int previousCount;
+		
+		private LinearSpaceTrace(State state, HasseGraph hasseGraph) {
+			Sequence[] allSequences = hasseGraph.getSequences();
+			Sequence[] sequences = new Sequence[state.getActive().size()];
+			for (int i = 0; i < sequences.length; i++) {
+				sequences[i] = allSequences[state.getActive().get(i)];
+			}
+			this.planePass = new PlanePass(state, state.getScoreMatrix(), sequences, allSequences, null, hasseGraph);
+			this.storage = state.getScoreMatrix().getHyperplaneStorage();
+			this.scratch = planePass.new CellScratch();
+			this.baseHyperplanes = 2 * sequences.length;
+			this.previousCount = state.getPrevious().size();
+			planePass.hyperplaneTracebacks = new Traceback[storage.getMaxSum()+1];
+		}
+		
+		/**
+		 * traces the path from an interior cell (see getSteps)
+		 * @return the last cell of the path (a boundary cell or the cell of the switch)
+		 */
+		private int[] trace(int[] start) {
+			int[] end = start;
+			do {																		// from checkpoint to checkpoint (the hyperplanes 0 ... n-1 have boundary cells only)
+				end = trace(end, storage.getStoredBelow(getSum(end), end.length));
+			} while (!switched && !new IndexVector(end).contains(0));
+			storage.releaseHyperplanes();
+			return end;
+		}
+		
+		/**
+		 * traces the path from the top cell down to the first cell of the hyperplanes 0 ... bottom,
+		 * the hyperplanes bottom-n+1 ... bottom have to be stored (and they stay stored)
+		 * @return the last cell of the path
+		 */
+		private int[] trace(int[] top, int bottom) {
+			int topSum = getSum(top);
+			if (topSum - bottom <= baseHyperplanes) {
+				compute(top, bottom+1, topSum, false);
+				int[] end = walk(top, bottom);
+				for (int k = bottom+1; k <= topSum; k++) {
+					storage.releaseHyperplane(k);
+					planePass.hyperplaneTracebacks[k] = null;
+				}
+				return end;
+			}
+			int middle = (bottom + topSum) / 2;
+			compute(top, bottom+1, middle, true);
+			int[] end = trace(top, middle);												// the upper half
+			for (int k = bottom+1; k <= middle; k++) {
+				storage.releaseHyperplane(k);
+			}
+			if (switched || new IndexVector(end).contains(0) || getSum(end) <= bottom) {
+				return end;
+			}
+			return trace(end, bottom);													// the lower half
+		}
+		
+		/**
+		 * recomputes the interior cells of the hyperplanes from ... to inside the box 0 ... top
+		 * @param rolling - true: only the last n hyperplanes are kept, false: all of them are kept and the steps of their cells are recorded
+		 */
+		private void compute(int[] top, int from, int to, boolean rolling) {
+			for (int k = from; k <= to; k++) {
+				storage.allocateHyperplane(k);
+				if (!rolling) {
+					planePass.hyperplaneTracebacks[k] = new Traceback(storage.getHyperplane(k).length, top.length, previousCount);
+				}
+				planePass.visitHyperplane(k, top, true, (iPattern, offset) -> planePass.computeRow(iPattern, offset, iPattern.get(top.length-1), iPattern.get(top.length-1), scratch));
+				if (rolling && k - top.length >= from) {
+					storage.releaseHyperplane(k - top.length);
+				}
+			}
+		}
+		
+		/**
+		 * takes the steps of the backtrack from the top cell while the hyperplanes are stored (down to the first cell of the hyperplanes 0 ... bottom)
+		 * @return the last cell of the path
+		 */
+		private int[] walk(int[] top, int bottom) {
+			IndexVector iPattern = new IndexVector(top.clone());
+			long[] hyperplaneStrides = storage.getHyperplaneStrides();
+			long hyperplaneOffset = 0;													// the offset of the cell in its hyperplane
+			for (int i = 0; i < top.length; i++) {
+				hyperplaneOffset += top[i] * hyperplaneStrides[i];
+			}
+			int sum = getSum(top);
+			while (sum > bottom && !iPattern.contains(0)) {
+				Traceback traceback = planePass.hyperplaneTracebacks[sum];
+				int step = traceback.get(hyperplaneOffset);
+				if (step == Traceback.SWITCH) {
+					switched = true;
+					switchIndex = traceback.getPreviousIndex(hyperplaneOffset);
+					break;
+				}
+				if (step == Traceback.UNKNOWN) {
+					throw new java.lang.Error("LinearSpaceTrace.walk: the step of the cell " + iPattern + " was not recorded");
+				}
+				steps.add(step);
+				for (int i = 0; i < iPattern.length(); i++) {
+					if ((step & (1 << i)) != 0) {
+						iPattern.addTo(-1, i);
+						hyperplaneOffset -= hyperplaneStrides[i];
+						sum--;
+					}
+				}
 			}
+			return iPattern.toArray();
 		}
 		
-		// initialize the SequencesCharArray
-		char[] chars = new char[sequences.length];
-		for (int i = 0; i < chars.length; i++) {
-			chars[i] = Scorer.GAP_CHAR;
+		/** @return the PI-Pattern masks of the steps of the traced path */
+		private ArrayList<Integer> getSteps() {
+			return steps;
 		}
 		
-		// get chars
-		for (int i = 0; i < indicesToUse.length; i++) {
-			if (piPattern[i] != 0) {
-				// since we got the reduced i- and pi- patterns but the full sequences array we have to select the sequence by using the inidicesToUse vector
-				chars[indicesToUse[i]] = sequences[indicesToUse[i]].get(iPattern[i] + piPattern[i]); 
+		/** @return true if the traced path ends with a switch to a previous State */
+		private boolean isSwitched() {
+			return switched;
+		}
+		
+		/** @return the index of the previous State the traced path switches to (in State.getPrevious(), see isSwitched) */
+		private int getSwitchIndex() {
+			return switchIndex;
+		}
+	}
+	
+	/** @return the index sum of the cell (its hyperplane) */
+	private static int getSum(int[] cell) {
+		int sum = 0;
+		for (int index : cell) {
+			sum += index;
+		}
+		return sum;
+	}
+	
+	/** writes the column of the given codes of the active sequences in front of the aligned sequences (' ' for the inactive ones) */
+	private void prependColumn(String[] alignedSequences, State actualState, byte[] codes) {
+		int j = 0;
+		for (int i = 0; i < alignedSequences.length; i++) {					// mapping from sequences to allSequences
+			if (actualState.getActive().contains(i)) {
+				alignedSequences[i] = Scorer.getInstance().decode(codes[j]) + alignedSequences[i];	// writing the aligned sequences
+				j++;
+			} else {
+				alignedSequences[i] = ' ' + alignedSequences[i];
 			}
 		}
-		return chars;
 	}
-
+	
+	/** writes the column of the step with the given PI-Pattern mask in front of the aligned sequences and moves the I-Pattern to the predecessor */
+	private void prependStep(String[] alignedSequences, State actualState, Sequence[] sequences, IndexVector iPattern, int mask, byte[] codes) {
+		for (int i = 0; i < codes.length; i++) {
+			if ((mask & (1 << i)) == 0) {
+				codes[i] = Scorer.GAP_CODE;
+			} else {
+				codes[i] = sequences[i].getCode(iPattern.get(i)-1);
+			}
+		}
+		prependColumn(alignedSequences, actualState, codes);
+		for (int i = 0; i < codes.length; i++) {
+			if ((mask & (1 << i)) != 0) {
+				iPattern.addTo(-1, i);
+			}
+		}
+	}
+	
 	/** the backtracking */
 	private Sequence[] backtrack(HasseGraph hasseGraph){
 		Sequence[] allSequences = hasseGraph.getSequences();
@@ -654,10 +1831,14 @@ public class Aligner {
 		
 		IndexVector piPattern = new IndexVector(new int[sequences.length]);		// the PI-Pattern vector used in case distinctions (PI-Pattern)
 		IndexVector iPattern = new IndexVector(new int[sequences.length]);		// to save the actual matrix indices (I-Pattern)
-		char[] chars = new char[sequences.length];								// temporary char array used for calculation
+		byte[] codes = new byte[sequences.length];								// temporary code array used for calculation
+		ColumnScorer columnScorer = new ColumnScorer(sequences.length, null);	// scores the columns of the actual cell
+		float[] columnScores = null;											// the column scores of the actual cell (null if not computed yet)
+		long offset = 0;														// the flat offset of the actual cell (valid if columnScores != null)
+		int switchIndex = -1;													// the index of the previous state recorded for the switch (-1: searched)
 		
 		if (actualState.isFullyRightLocal()) {
-			iPattern = actualState.getMaxScoreIndices();
+			iPattern = actualState.getMaxScoreIndices().clone();				// cloned, since the I-Pattern is changed in place
 		} else {
 			for (int i = 0; i < sequences.length; i++) {							// start on the bottom right of the matrix (max indices)
 				iPattern.set(sequences[i].getLength(), i);
@@ -674,13 +1855,55 @@ public class Aligner {
 			// Look for a match in the actual Matrix
 			while (true) {															// iteration over (negative!) PI-Pattern starts here. (Pi-Pattern {0,-1}^n)
 //				System.out.println("ACTUAL INNER PI:    " + piPattern);
-				if (!piPattern.isNullVector() && !iPattern.addToVector(piPattern.toArray()).hasNegetiveEntry()) {	// ignore case where PI-Pattern = (0,...,0) (total gap is not allowed) or where one or more indices get negative
+				if (piPattern.isNullVector() && scoreMatrix.getTraceback() != null) {		// the step was recorded by the full pass (not for the boundary cells of the planes)
+					long cellOffset = scoreMatrix.getOffset(iPattern.toArray());
+					int step = scoreMatrix.getTraceback().get(cellOffset);
+					if (step == Traceback.SWITCH) {
+						switchIndex = scoreMatrix.getTraceback().getPreviousIndex(cellOffset);
+						break;																// no match in the same matrix
+					}
+					if (step != Traceback.UNKNOWN) {
+						prependStep(alignedSequences, actualState, sequences, iPattern, step, codes);	// make the step
+						columnScores = null;
+						if (iPattern.isNullVector()) {
+							break;			
+						}
+						continue;
+					}
+				}
+				if (piPattern.isNullVector() && scoreMatrix.getHyperplaneStorage() != null && !iPattern.contains(0)) {	// the interior cells are not kept: the path is recomputed
+					LinearSpaceTrace trace = new LinearSpaceTrace(actualState, hasseGraph);
+					trace.trace(iPattern.toArray());
+					for (int step : trace.getSteps()) {
+						prependStep(alignedSequences, actualState, sequences, iPattern, step, codes);
+					}
+					columnScores = null;
+					if (trace.isSwitched()) {
+						switchIndex = trace.getSwitchIndex();
+					}
+					if (trace.isSwitched() || iPattern.isNullVector()) {
+						break;																// no match in the same matrix (or alignment complete)
+					}
+					continue;																// on the boundary (its cells are kept)
+				}
+				if (!piPattern.isNullVector() && !iPattern.hasNegetiveEntry(piPattern)) {	// ignore case where PI-Pattern = (0,...,0) (total gap is not allowed) or where one or more indices get negative
 					// case distinctions for SAME MATRIX (to compute the actual columns score)
-					for (int i = 0; i < chars.length; i++) {
+					if (columnScores == null) {
+						for (int i = 0; i < codes.length; i++) {						// residues of the actual cell (gaps where no residue is left)
+							codes[i] = iPattern.get(i) == 0 ? Scorer.GAP_CODE : sequences[i].getCode(iPattern.get(i)-1);
+						}
+						columnScores = columnScorer.score(codes);
+						offset = scoreMatrix.getOffset(iPattern.toArray());
+					}
+					int mask = 0;
+					long predecessorOffset = offset;
+					for (int i = 0; i < codes.length; i++) {
 						if (piPattern.get(i) == 0) { 
-							chars[i] = Scorer.GAP_CHAR;
+							codes[i] = Scorer.GAP_CODE;
 						} else {
-							chars[i] = sequences[i].get(iPattern.get(i)-1);	
+							codes[i] = sequences[i].getCode(iPattern.get(i)-1);	
+							mask |= 1 << i;
+							predecessorOffset -= scoreMatrix.getStride(i);
 						}
 					}
 					
@@ -691,19 +1914,12 @@ public class Aligner {
 //					System.out.print(chars);
 //					System.out.println(" : " + scoreMatrix.get(iPattern.addToArray(piPattern)) + " ==? " + scoreMatrix.get(iPattern.toArray()) + "-" + Scorer.getInstance().getScoreSumOfPairs(chars));
 					
-					// find matching successor matrix entry ("looking at"-score = actual score - score for actual pi-pattern (column))
-					if (scoreMatrix.get(iPattern.addToArray(piPattern.toArray())) == scoreMatrix.get(iPattern.toArray()) - Scorer.getInstance().getScoreSumOfPairs(chars)) {
-						int j = 0;
-						for (int i = 0; i < alignedSequences.length; i++) {					// mapping from sequences to allSequences
-							if (actualState.getActive().contains(i)) {
-								alignedSequences[i] = chars[j] + alignedSequences[i];		// writing the aligned sequences
-								j++;
-							} else {
-								alignedSequences[i] = ' ' + alignedSequences[i];
-							}
-						}
+					// find matching successor matrix entry ("looking at"-score + score for actual pi-pattern (column) = actual score, as it was summed up)
+					if (scoreMatrix.get(predecessorOffset) + columnScores[mask] == scoreMatrix.get(offset)) {
+						prependColumn(alignedSequences, actualState, codes);
 						
-						iPattern = iPattern.addToVector(piPattern.toArray());				// make the step (pi pattern)
+						iPattern.add(piPattern);											// make the step (pi pattern)
+						columnScores = null;
 						if (iPattern.isNullVector()) {
 							break;			
 						}
@@ -730,17 +1946,27 @@ public class Aligner {
 			// additional case distictions for previous ADJACENT MATRICES (you come here if no match in same matrix was found or alignment is complete) // Change to next Matrix
 			if (iPattern.isNullVector()) { break; }																								// if alignment is allready complete, skip this
 //			System.out.println("no way found in actual matrix...");
-			for (State state : actualState.getPrevious()) {
+			boolean recorded = switchIndex >= 0;									// only the recorded previous state is tried (without comparing its score)
+			int firstIndex = recorded ? switchIndex : 0;
+			int endIndex = recorded ? switchIndex+1 : actualState.getPrevious().size();
+			switchIndex = -1;
+			State previousState = null;
+			for (int p = firstIndex; p < endIndex; p++) {
+				State state = actualState.getPrevious().get(p);
+				if (state.isPruned()) { continue; }																									// skip pruned states
 				if (state.getScoreMatrix().getMaxScore() == Float.NEGATIVE_INFINITY) { continue; }													// skip void states
-				IndexVector candiadateIPattern = getMaxScoreCandidateIndices(actualState, state, sequences, allSequences, iPattern, null);		// the "previous" iPattern (of the previous state)
-				IndexVector computedPiPattern = getPiPattern(actualState, state, iPattern, candiadateIPattern, null);							// the piPattern betweed previous and actual iPattern
+				Transition transition = actualState.getTransition(state);
+				long candidate = transition.getCandidate(iPattern);
+				if (candidate < 0) { continue; }																									// no candidate in this state
+				IndexVector candiadateIPattern = transition.getCandidateIndices(candidate);													// the "previous" iPattern (of the previous state)
+				IndexVector computedPiPattern = transition.getPiPattern(iPattern, candiadateIPattern);										// the piPattern betweed previous and actual iPattern
 				
 				// case distinctions for SAME MATRIX (to compute the actual columns score)
-				for (int i = 0; i < chars.length; i++) {
+				for (int i = 0; i < codes.length; i++) {
 					if (computedPiPattern.get(i) == 0 || iPattern.get(i) == 0) { 
-						chars[i] = Scorer.GAP_CHAR;
+						codes[i] = Scorer.GAP_CODE;
 					} else {
-						chars[i] = sequences[i].get(iPattern.get(i)-1);	
+						codes[i] = sequences[i].getCode(iPattern.get(i)-1);	
 					}
 				}
 				
@@ -750,19 +1976,26 @@ public class Aligner {
 //				}
 //				System.out.print(chars);
 //				System.out.println(" : " + state.getScoreMatrix().get(candiadateIPattern.toArray()) + " ==? " + scoreMatrix.get(iPattern.toArray()) + "-" + Scorer.getInstance().getScoreSumOfPairs(chars));
-				if (state.getScoreMatrix().get(candiadateIPattern.toArray()) == scoreMatrix.get(iPattern.toArray())) {	// find matching successor matrix entry ("looking at"-score = actual score - score for actual pi-pattern (column))
+				if (recorded || transition.getScore(candidate) == scoreMatrix.get(iPattern.toArray())) {	// find matching successor matrix entry ("looking at"-score = actual score - score for actual pi-pattern (column))
 					// reconfiguration to process the new State
+					previousState = state;
 					actualState = state;
 					sequences = new Sequence[actualState.getActive().size()];
 					for (int i = 0; i < sequences.length; i++) {
 						sequences[i] = allSequences[actualState.getActive().get(i)];	// select the active sequences for the actual state (maxFinalState = initial State for backtracking)
 					}
-					chars = new char[sequences.length];
+					codes = new byte[sequences.length];
+					columnScorer = new ColumnScorer(sequences.length, null);
+					columnScores = null;
 					piPattern = new IndexVector(new int[sequences.length]);				// reset the PI-Pattern vector with respect to the dimensions of the new matrix
-					iPattern = candiadateIPattern;
+					iPattern = candiadateIPattern.clone();								// cloned, since the I-Pattern is changed in place
+					MatrixReleaser.releaseUnreachable(hasseGraph, actualState);			// the path does not come back to the following states
 					break;
 				}
 			}
+			if (previousState == null) {												// neither a neighbor nor a previous state matches: no way back
+				throw new java.lang.Error("Aligner.backtrack: no predecessor matches the score of the cell " + iPattern + " of the state " + actualState);
+			}
 		}
 		
 		Sequence[] alignedSequencesCharArray = new Sequence[allSequences.length];		// char[] to sequence; alignedSequences to alignedSequencesCharArray
@@ -0,0 +1,106 @@
+package controller;
+
+/**
+ * A ColumnScorer computes the Sum of Pairs scores of every column (PI-Pattern) of a single matrix cell.
+ * Only the columns of the plane sequences are built (the sequences not in the plane are gaps), each from the column with one residue less:
+ * score[mask] = score[mask without its lowest bit b] + the changes of the pairs (b, c) if sequence b contributes its residue instead of a gap.
+ * The changes are taken from the pairwise vectors of the cell. They are added up in double, where the sum of a few float scores is exact,
+ * so a column gets the same (correctly rounded) float score from every ColumnScorer, whatever its plane is.
+ * Columns are indexed by masks: bit b is set if the b-th plane sequence contributes its residue, otherwise it contributes a gap.
+ * @author Falco
+ */
+public class ColumnScorer {
+  // object definition
+	/** the number of sequences in a column (sequences not in the plane are always gaps) */
+	private int sequencesCount;
+	/** the column positions of the plane sequences (ascending) */
+	private int[] planeIndices;
+	/** the score of the column containing gaps only */
+	private double gapColumnScore;
+	/** the score change of pair (b, c) of plane sequences if b switches from gap to residue, pairDelta[((b * k + c) << 1) | state of c] (per cell) */
+	private double[] pairDelta;
+	/** the score change of the pairs of plane sequence b and the sequences before it in the plane or not in the plane if b switches from gap to residue (they are gaps in every column b is the lowest residue of) */
+	private double[] lowDelta;
+	/** the exact scores of the plane columns indexed by mask */
+	private double[] sums;
+	/** the scores of the plane columns indexed by mask */
+	private float[] columnScores;
+
+	/**
+	 * generates a new ColumnScorer
+	 * @param sequencesCount - the number of sequences in a column
+	 * @param planeIndices - the column positions of the sequences which may contribute residues (if null use all)
+	 */
+	public ColumnScorer(int sequencesCount, int[] planeIndices) {
+		if (planeIndices == null) {
+			planeIndices = new int[sequencesCount];
+			for (int i = 0; i < planeIndices.length; i++) {
+				planeIndices[i] = i;
+			}
+		}
+		this.sequencesCount = sequencesCount;
+		this.planeIndices = planeIndices.clone();
+		this.pairDelta = new double[(planeIndices.length * planeIndices.length) << 1];
+		this.lowDelta = new double[planeIndices.length];
+		this.sums = new double[1 << planeIndices.length];
+		this.columnScores = new float[1 << planeIndices.length];
+
+		float gapGapScore = Scorer.getInstance().getScore(Scorer.GAP_CODE, Scorer.GAP_CODE);
+		this.gapColumnScore = 0;
+		for (int i = 0; i < sequencesCount * (sequencesCount-1) / 2; i++) {
+			this.gapColumnScore += gapGapScore;
+		}
+	}
+
+	/**
+	 * computes the scores of all the columns of a cell
+	 * @param residues - the codes of the plane sequences at the actual cell (residues[b] is used if bit b is set)
+	 * @return the scores indexed by mask (the returned array is reused by the next call)
+	 */
+	public float[] score(byte[] residues) {
+		Scorer scorer = Scorer.getInstance();
+		int k = planeIndices.length;
+		float gapGapScore = scorer.getScore(Scorer.GAP_CODE, Scorer.GAP_CODE);
+
+		// the pairwise contributions of this cell (the pairs are scored in column order)
+		for (int b = 0; b < k; b++) {
+			byte residue = residues[b];
+			double rowDelta = 0;
+			int before = planeIndices[b];												// the sequences not in the plane before and after b
+			int after = sequencesCount -1 - planeIndices[b];
+			for (int c = 0; c < k; c++) {
+				if (c == b) { continue; }
+				if (c > b) {
+					pairDelta[(b * k + c) << 1] = (double) scorer.getScore(residue, Scorer.GAP_CODE) - gapGapScore;
+					pairDelta[((b * k + c) << 1) | 1] = (double) scorer.getScore(residue, residues[c]) - scorer.getScore(Scorer.GAP_CODE, residues[c]);
+					after--;
+				} else {
+					pairDelta[(b * k + c) << 1] = (double) scorer.getScore(Scorer.GAP_CODE, residue) - gapGapScore;
+					pairDelta[((b * k + c) << 1) | 1] = (double) scorer.getScore(residues[c], residue) - scorer.getScore(residues[c], Scorer.GAP_CODE);
+					rowDelta += pairDelta[(b * k + c) << 1];
+					before--;
+				}
+			}
+			rowDelta += before * ((double) scorer.getScore(Scorer.GAP_CODE, residue) - gapGapScore);
+			rowDelta += after * ((double) scorer.getScore(residue, Scorer.GAP_CODE) - gapGapScore);
+			lowDelta[b] = rowDelta;
+		}
+
+		// every column from the column without its lowest residue (additions only)
+		sums[0] = gapColumnScore;
+		columnScores[0] = (float) gapColumnScore;
+		for (int mask = 1; mask < sums.length; mask++) {
+			int b = Integer.numberOfTrailingZeros(mask);
+			int rest = mask & (mask-1);
+			double sum = sums[rest] + lowDelta[b];
+			int row = (b * k) << 1;
+			for (int c = b+1; c < k; c++) {
+				sum += pairDelta[row + (c << 1) + ((rest >>> c) & 1)];
+			}
+			sums[mask] = sum;
+			columnScores[mask] = (float) sum;
+		}
+		return columnScores;
+	}
+
+}
@@ -0,0 +1,147 @@
+package controller;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import model.hasse.HasseGraph;
+import model.hasse.State;
+
+/**
+ * A MatrixReleaser counts the following States reading every State which are not computed yet (the edges of the HasseGraph
+ * used by transitions) and releases the cells of a Matrix as soon as no following State reads it anymore
+ * and it can not lie on the backtrack path (see Matrix.releaseCells), the score of the State is kept.
+ * Any computed State may lie on the backtrack path until the max final State is known, so the matrices are released
+ * while computing in score-only mode only, afterwards the States which are not previous to the path are released (see releaseUnreachable).
+ * In backtrack mode the interior cells of a Matrix recording its backtrack steps are released instead, if every following State
+ * reads it through a max projection (see Matrix.releaseInterior): the backtrack follows the steps and reads the boundary cells and the projections only.
+ * The sequential computation chooses the ready State the live bytes grow least with (see choose).
+ * @author Falco
+ */
+public class MatrixReleaser {
+  // static definition
+	/** releases the cells of the Matrix of the State (if it is computed) and the transitions reading them */
+	private static void release(State state) {
+		if (state.getScoreMatrix() != null) {
+			state.getScoreMatrix().releaseCells();
+		}
+		for (State followingState : state.getFollowing()) {
+			followingState.removeTransition(state);
+		}
+	}
+
+	/**
+	 * releases the interior cells of the Matrix of the State (if it is computed and records its backtrack steps), the transitions
+	 * of the following States are compiled before, so the max projections the backtrack reads are computed from the complete Matrix
+	 */
+	private static void shrink(State state) {
+		if (state.getScoreMatrix() == null || state.getScoreMatrix().getTraceback() == null) { return; }
+		for (State followingState : state.getFollowing()) {
+			if (!followingState.isPruned()) { followingState.getTransition(state); }
+		}
+		state.getScoreMatrix().releaseInterior();
+	}
+
+	/** releases the matrices of the States which are neither the given State nor (transitively) previous to it, the backtrack can not reach them from the State */
+	public static void releaseUnreachable(HasseGraph hasseGraph, State state) {
+		Set<State> reachable = Collections.newSetFromMap(new IdentityHashMap<State, Boolean>());
+		ArrayDeque<State> queue = new ArrayDeque<>();
+		reachable.add(state);
+		queue.add(state);
+		while (!queue.isEmpty()) {
+			for (State previousState : queue.poll().getPrevious()) {
+				if (reachable.add(previousState)) { queue.add(previousState); }
+			}
+		}
+		for (State graphState : hasseGraph.getStates()) {
+			if (!reachable.contains(graphState)) { release(graphState); }
+		}
+	}
+
+  // object definition
+	/** the States of the computation */
+	private ArrayList<State> states;
+	/** the indices of the previous States every State reads (the previous States of its transitions) */
+	private ArrayList<ArrayList<Integer>> read;
+	/** the number of following States reading every State which are not computed yet */
+	private AtomicIntegerArray missingFollowing;
+	/** the number of bytes every State keeps while it is read (0 for States without a Matrix) */
+	private double[] liveBytes;
+	/** the number of bytes every State keeps after its readers are computed */
+	private double[] keptBytes;
+	/** true if a Matrix is released as soon as its readers are computed (score-only mode) */
+	private boolean eager;
+	/** true for the States whose interior cells are released as soon as their readers are computed (backtrack mode, see shrink) */
+	private boolean[] shrinking;
+
+	/**
+	 * generates a new MatrixReleaser
+	 * @param states - the States of the computation
+	 * @param read - the indices of the previous States every State reads
+	 * @param liveBytes - the number of bytes every State keeps while it is read
+	 * @param keptBytes - the number of bytes every State keeps after its readers are computed
+	 * @param eager - true if the matrices are released while computing (no backtrack follows)
+	 * @param shrinking - true for the States whose interior cells are released while computing
+	 */
+	public MatrixReleaser(ArrayList<State> states, ArrayList<ArrayList<Integer>> read, double[] liveBytes, double[] keptBytes, boolean eager, boolean[] shrinking) {
+		this.states = states;
+		this.read = read;
+		this.liveBytes = liveBytes;
+		this.keptBytes = keptBytes;
+		this.eager = eager;
+		this.shrinking = shrinking;
+		this.missingFollowing = new AtomicIntegerArray(states.size());
+		for (ArrayList<Integer> previousIndices : read) {
+			for (int previousIndex : previousIndices) {
+				missingFollowing.incrementAndGet(previousIndex);
+			}
+		}
+	}
+
+	/** counts the State as computed: releases it if no State reads it, and its previous States which are not read anymore */
+	public void computed(int index) {
+		if (missingFollowing.get(index) == 0) {
+			unread(index);
+		}
+		for (int previousIndex : read.get(index)) {
+			if (missingFollowing.decrementAndGet(previousIndex) == 0) {
+				unread(previousIndex);
+			}
+		}
+	}
+
+	/** releases the Matrix of a State no State reads anymore (score-only mode) or its interior cells (see shrink) */
+	private void unread(int index) {
+		if (eager) {
+			release(states.get(index));
+		} else if (shrinking[index]) {
+			shrink(states.get(index));
+		}
+	}
+
+	/**
+	 * chooses the ready State to compute next, so the live bytes grow least: the bytes of the State minus the bytes released
+	 * from the previous States it is the last reader of (and from the State itself if no State reads it)
+	 * @param ready - the indices of the ready States in the order they became ready
+	 * @return the position of the chosen State in ready
+	 */
+	public int choose(ArrayList<Integer> ready) {
+		int chosen = 0;
+		double minGrowth = Double.POSITIVE_INFINITY;
+		for (int position = 0; position < ready.size(); position++) {
+			int index = ready.get(position);
+			double growth = missingFollowing.get(index) == 0 ? keptBytes[index] : liveBytes[index];
+			for (int previousIndex : read.get(index)) {
+				if (missingFollowing.get(previousIndex) == 1) { growth -= liveBytes[previousIndex] - keptBytes[previousIndex]; }
+			}
+			if (growth < minGrowth) {
+				minGrowth = growth;
+				chosen = position;
+			}
+		}
+		return chosen;
+	}
+}
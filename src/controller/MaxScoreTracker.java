@@ -0,0 +1,90 @@
+package controller;
+
+import model.IndexVector;
+import model.Matrix;
+
+/**
+ * A MaxScoreTracker collects the max score of a Matrix and the indices of its first max score while the Matrix is filled,
+ * as Matrix.getMaxScore and Matrix.getMaxScoreIndices would find them by scanning the Matrix.
+ * The cells may be added in any order, trackers of different parts of a Matrix can be merged.
+ * @author Falco
+ */
+public class MaxScoreTracker {
+  // object definition
+	/** the max score of all the added cells */
+	private float maxScore = Float.NEGATIVE_INFINITY;
+	/** the score at maxScoreIndices */
+	private float maxScoreIndicesScore = Float.NEGATIVE_INFINITY;
+	/** the lexicographically first indices of the max score of the cells Matrix.getMaxScoreIndices looks at (null if none was added) */
+	private int[] maxScoreIndices = null;
+	
+	/**
+	 * adds the final score of a cell
+	 * @param score - the score of the cell
+	 * @param iPattern - the indices of the cell (not stored)
+	 */
+	public void add(float score, IndexVector iPattern) {
+		if (score >= maxScore) {
+			maxScore = score;
+		}
+		if (hasLeadingZerosOnly(iPattern) && (maxScoreIndices == null || score > maxScoreIndicesScore 
+				|| (score == maxScoreIndicesScore && isLexicographicallySmaller(iPattern.toArray(), maxScoreIndices)))) {
+			maxScoreIndicesScore = score;
+			maxScoreIndices = iPattern.toArray().clone();
+		}
+	}
+	
+	/** adds the cells of the given tracker */
+	public void merge(MaxScoreTracker tracker) {
+		if (tracker.maxScore >= maxScore) {
+			maxScore = tracker.maxScore;
+		}
+		if (tracker.maxScoreIndices != null && (maxScoreIndices == null || tracker.maxScoreIndicesScore > maxScoreIndicesScore
+				|| (tracker.maxScoreIndicesScore == maxScoreIndicesScore && isLexicographicallySmaller(tracker.maxScoreIndices, maxScoreIndices)))) {
+			maxScoreIndicesScore = tracker.maxScoreIndicesScore;
+			maxScoreIndices = tracker.maxScoreIndices;
+		}
+	}
+	
+	/** records the tracked max score in the given Matrix (every cell has to be added) */
+	public void recordIn(Matrix scoreMatrix) {
+		scoreMatrix.setMaxScore(maxScore, maxScoreIndices == null ? null : new IndexVector(maxScoreIndices));
+	}
+	
+	/** @return the tracked indices of the first max score (null if none was added) */
+	public int[] getMaxScoreIndices() {
+		return maxScoreIndices;
+	}
+	
+	/** @return the score at the tracked indices (see getMaxScoreIndices) */
+	public float getMaxScoreIndicesScore() {
+		return maxScoreIndicesScore;
+	}
+	
+	/**
+	 * checks if the zeros of the I-Pattern are leading zeros only (as (0,0,3,1) but not (0,2,0,1)),
+	 * these are the entries Matrix.getMaxScoreIndices looks at
+	 */
+	private static boolean hasLeadingZerosOnly(IndexVector iPattern) {
+		boolean leading = true;
+		for (int i = 0; i < iPattern.length(); i++) {
+			if (iPattern.get(i) != 0) {
+				leading = false;
+			} else if (!leading) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/** @return true if indices is lexicographically smaller than otherIndices */
+	private static boolean isLexicographicallySmaller(int[] indices, int[] otherIndices) {
+		for (int i = 0; i < indices.length; i++) {
+			if (indices[i] != otherIndices[i]) {
+				return indices[i] < otherIndices[i];
+			}
+		}
+		return false;
+	}
+	
+}
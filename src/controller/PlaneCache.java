@@ -0,0 +1,165 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import model.Matrix;
+import model.hasse.State;
+
+/**
+ * A PlaneCache shares the boundary planes of the score matrices between States with the same active sequences.
+ * A plane pass writes the box of its plane sequences (the other indices are 0). The values depend on the active sequences,
+ * the plane, the previous States of the plane and on the earlier passes writing into the box: the passes of sub-planes
+ * (their interior cells) and the passes with previous States (their boundary cells are set from the previous States only).
+ * The key of a plane pass contains all of these, so two passes with the same key write the same values and the later one copies the box.
+ * Only keys used by more than one pass are stored, a stored box is dropped as soon as its last pass took it.
+ * @author Falco
+ */
+public class PlaneCache {
+  // object definition
+	/** the keys of the plane passes of every registered State (null: the pass is not shared) */
+	private IdentityHashMap<State, String[]> keys = new IdentityHashMap<>();
+	/** the number of passes still to come for every shared key */
+	private HashMap<String, Integer> remainingPasses = new HashMap<>();
+	/** the stored boxes */
+	private HashMap<String, float[]> boxes = new HashMap<>();
+	/** the number of floats which may be stored at once */
+	private long capacity;
+	/** the number of floats stored */
+	private long size;
+
+	/**
+	 * generates a new empty PlaneCache
+	 * @param capacity - the number of bytes which may be stored at once
+	 */
+	public PlaneCache(long capacity) {
+		this.capacity = capacity / 4;
+	}
+
+	/**
+	 * computes the keys of the plane passes of a State
+	 * @param state - the State
+	 * @param planes - the planes in the order of their passes
+	 * @param transitionStates - the previous States taken into account by each pass
+	 */
+	public void register(State state, ArrayList<int[]> planes, ArrayList<ArrayList<State>> transitionStates) {
+		String[] stateKeys = new String[planes.size()];
+		int[] planeMasks = new int[planes.size()];
+		for (int p = 0; p < planes.size(); p++) {
+			for (int index : planes.get(p)) {
+				planeMasks[p] |= 1 << index;
+			}
+			StringBuilder key = new StringBuilder();
+			key.append(state.getActiveMask()).append('/').append(planeMasks[p]).append(getTransitionsKey(transitionStates.get(p))).append('{');
+			for (int earlier = 0; earlier < p; earlier++) {
+				if ((planeMasks[earlier] & ~planeMasks[p]) == 0) {								// a sub-plane (its interior cells are in the box)
+					key.append('(').append(stateKeys[earlier]).append(')');
+				} else if (transitionStates.get(earlier).size() > 0) {						// writes boundary cells of the box from previous states
+					key.append('<').append(planeMasks[earlier]).append(getTransitionsKey(transitionStates.get(earlier))).append('>');
+				}
+			}
+			stateKeys[p] = key.append('}').toString();
+			remainingPasses.merge(stateKeys[p], 1, Integer::sum);
+		}
+		keys.put(state, stateKeys);
+	}
+
+	/** @return the key part of the previous States of a pass */
+	private static String getTransitionsKey(ArrayList<State> transitionStates) {
+		StringBuilder key = new StringBuilder("[");
+		for (State state : transitionStates) {
+			key.append(state.toShortString());
+		}
+		return key.append(']').toString();
+	}
+
+	/** drops the keys which are used by one pass only (call after all the States are registered) */
+	public void shareOnly() {
+		for (String[] stateKeys : keys.values()) {
+			for (int p = 0; p < stateKeys.length; p++) {
+				if (remainingPasses.get(stateKeys[p]) < 2) {
+					stateKeys[p] = null;
+				}
+			}
+		}
+		remainingPasses.values().removeIf(count -> count < 2);
+	}
+
+	/** @return the keys of the plane passes of the State (null entries: not shared; null if the State is not registered) */
+	public String[] getKeys(State state) {
+		return keys.get(state);
+	}
+
+	/**
+	 * copies the stored box of the key into the Matrix, if there is one; the pass of the key is counted as done either way
+	 * @return true if the box was copied, false if the pass has to be computed
+	 */
+	public boolean restore(String key, Matrix scoreMatrix, int[] indicesToCount) {
+		float[] box;
+		synchronized (this) {
+			box = boxes.get(key);
+			int remaining = remainingPasses.get(key) -1;
+			remainingPasses.put(key, remaining);
+			if (remaining == 0 && box != null) {										// the last pass of the key
+				boxes.remove(key);
+				size -= box.length;
+			}
+		}
+		if (box == null) {
+			return false;
+		}
+		copy(scoreMatrix, indicesToCount, box, true);
+		return true;
+	}
+
+	/** stores the box of the computed pass if later passes need it and it fits into the capacity */
+	public void store(String key, Matrix scoreMatrix, int[] indicesToCount) {
+		long length = 1;
+		for (int index : indicesToCount) {
+			length *= scoreMatrix.getLength(index);
+		}
+		synchronized (this) {
+			if (remainingPasses.get(key) == 0 || boxes.containsKey(key) || size + length > capacity || length > Integer.MAX_VALUE) {
+				return;
+			}
+			size += length;
+			boxes.put(key, null);														// reserved
+		}
+		float[] box = new float[(int) length];
+		copy(scoreMatrix, indicesToCount, box, false);
+		synchronized (this) {
+			if (remainingPasses.get(key) > 0) {
+				boxes.put(key, box);
+			} else {																	// taken by all the passes in the meantime
+				boxes.remove(key);
+				size -= length;
+			}
+		}
+	}
+
+	/**
+	 * copies the box of the plane sequences (the other indices are 0) between the Matrix and the array (lexicographic order)
+	 * @param toMatrix - true: from the array to the Matrix, false: from the Matrix to the array
+	 */
+	private static void copy(Matrix scoreMatrix, int[] indicesToCount, float[] box, boolean toMatrix) {
+		int[] iPattern = new int[indicesToCount.length];
+		long offset = 0;
+		for (int n = 0; n < box.length; n++) {
+			if (toMatrix) {
+				scoreMatrix.set(box[n], offset);
+			} else {
+				box[n] = scoreMatrix.get(offset);
+			}
+			for (int i = iPattern.length-1; i >= 0; i--) {							// next cell (odometer)
+				iPattern[i]++;
+				offset += scoreMatrix.getStride(indicesToCount[i]);
+				if (iPattern[i] < scoreMatrix.getLength(indicesToCount[i])) {
+					break;
+				}
+				offset -= scoreMatrix.getStride(indicesToCount[i]) * iPattern[i];
+				iPattern[i] = 0;
+			}
+		}
+	}
+}
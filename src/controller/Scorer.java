@@ -3,6 +3,8 @@ package controller;
 import java.util.ArrayList;
 import java.util.Collections;
 
+import model.Sequence;
+
 /**
  * The Scorer is a singleton class containing methods to compute scores for matches and miss-matches as well as gaps.
  * @author Falco, inspired by Alignments/src/container/Algebra.java written by Nancy 
@@ -11,6 +13,8 @@ public class Scorer {
   // static finals values
 	/** char representing a gap */
 	public static final char GAP_CHAR = '-';
+	/** alphabet code representing a gap */
+	public static final byte GAP_CODE = 0;
 
   // static values an methods
 	/** default score */
@@ -25,6 +29,9 @@ public class Scorer {
 		Scorer.scoreGap = scoreGap;
 		Scorer.scoreMatch = scoreMatch;
 		Scorer.scoreMissMatch = scoreMissMatch;
+		if (instance != null) {
+			instance.scoreTable = null;									// the compiled table is outdated now
+		}
 	}
 	
   // singleton intrinsic
@@ -43,11 +50,161 @@ public class Scorer {
 	}
 
   // object definition
+	/** the alphabet of the compiled score table (alphabet[code] is the char of this code) */
+	private char[] alphabet;
+	/** maps a char to its alphabet code (-1 if the char is not part of the alphabet) */
+	private byte[] charCodes;
+	/** log2 of the row length of the score table */
+	private int tableShift;
+	/** the compiled score table, scoreTable[(code1 << tableShift) | code2] is the score of the two codes */
+	private float[] scoreTable;
+	/** the fixed-point scale of the compiled score table (1 if the integer scoring is not used) */
+	private int scale = 1;
+	
+	/**
+	 * compiles the scoring (Settings.scoring, Settings.codes or the default scores) into a flat score table
+	 * the alphabet contains the gap (code 0), every char of the scoring matrix, every code symbol and every char of the given sequences
+	 * ambiguity codes are resolved here (max over their expansion) so scoring two codes is a single array load
+	 * @param sequences - the sequences to align
+	 */
+	public void compile(Sequence... sequences) {
+		StringBuilder chars = new StringBuilder();
+		chars.append(GAP_CHAR);
+		if (Settings.scoring != null) {
+			for (char c : Settings.scoring.getChars()) {
+				if (chars.indexOf(String.valueOf(c)) < 0) { chars.append(c); }
+			}
+		}
+		if (Settings.codes != null) {
+			for (Character c : Settings.codes.keySet()) {
+				if (chars.indexOf(String.valueOf(c)) < 0) { chars.append(c); }
+			}
+		}
+		for (Sequence sequence : sequences) {
+			for (char c : sequence.toCharArray()) {
+				if (chars.indexOf(String.valueOf(c)) < 0) { chars.append(c); }
+			}
+		}
+		if (chars.length() > Byte.MAX_VALUE) {
+			throw new java.lang.Error("Scorer.compile: alphabet too large (" + chars.length() + " symbols)");
+		}
+		
+		this.alphabet = chars.toString().toCharArray();
+		this.charCodes = new byte[Character.MAX_VALUE+1];
+		for (int i = 0; i < charCodes.length; i++) {
+			charCodes[i] = -1;
+		}
+		for (int i = 0; i < alphabet.length; i++) {
+			charCodes[alphabet[i]] = (byte) i;
+		}
+		
+		this.tableShift = 32 - Integer.numberOfLeadingZeros(alphabet.length - 1);
+		float[] table = new float[alphabet.length << tableShift];
+		for (int i = 0; i < alphabet.length; i++) {
+			for (int j = 0; j < alphabet.length; j++) {
+				table[(i << tableShift) | j] = computeScore(alphabet[i], alphabet[j]);
+			}
+		}
+		this.scale = 1;
+		if (Settings.integerScoring) {											// scale the scores to fixed-point integers
+			this.scale = Settings.scoreScale > 0 ? Settings.scoreScale : getIntegralScale(table);
+			for (int i = 0; i < table.length; i++) {
+				table[i] = Math.round(table[i] * scale);
+			}
+		}
+		this.scoreTable = table;
+		
+		for (Sequence sequence : sequences) {
+			sequence.encode();
+		}
+	}
+	
+	/** @return the smallest power of ten (up to 10^6) which turns every score into an integer */
+	private int getIntegralScale(float[] scores) {
+		int scale = 1;
+		while (scale < 1000000) {
+			boolean integral = true;
+			for (float score : scores) {
+				if (Math.abs(score * scale - Math.round(score * scale)) > 1e-3) {
+					integral = false;
+					break;
+				}
+			}
+			if (integral) { break; }
+			scale *= 10;
+		}
+		return scale;
+	}
+	
+	/** @return the fixed-point scale of the compiled scores (the real score is the compiled score / scale) */
+	public int getScale() {
+		return scale;
+	}
+	
+	/**
+	 * computes an upper bound for the absolute value of every score in an alignment of the given sequences
+	 * (every column scores at most (n over 2) times the largest absolute pair score)
+	 * @return the bound (in compiled, possibly scaled, scores)
+	 */
+	public long getScoreBound(Sequence... sequences) {
+		float maxAbsScore = 0;
+		for (float score : scoreTable) {
+			maxAbsScore = Math.max(maxAbsScore, Math.abs(score));
+		}
+		long columns = 0;
+		for (Sequence sequence : sequences) {
+			columns += sequence.getLength();
+		}
+		long pairs = (long) sequences.length * (sequences.length-1) / 2;
+		return (long) Math.ceil(maxAbsScore) * pairs * columns;
+	}
+	
+	/** @return the alphabet code of the given char, -1 if the char is not part of the compiled alphabet */
+	public byte encode(char c) {
+		if (scoreTable == null) {
+			return -1;
+		}
+		return charCodes[c];
+	}
+	
+	/** @return the char of the given alphabet code */
+	public char decode(byte code) {
+		return alphabet[code];
+	}
+	
+	/** @return the alphabet of the compiled score table (alphabet[code] is the char of this code) */
+	public char[] getAlphabet() {
+		return alphabet;
+	}
+	
+	/**
+	 * looks up the score of two alphabet codes in the compiled score table
+	 * @return the score
+	 */
+	public float getScore(byte code1, byte code2){
+		return scoreTable[(code1 << tableShift) | code2];
+	}
+	
 	/**
 	 * computes the score for two characters
 	 * @return the score
 	 */
 	public float getScore(char c1, char c2){
+		if (scoreTable != null) {
+			byte code1 = charCodes[c1];
+			byte code2 = charCodes[c2];
+			if (code1 >= 0 && code2 >= 0) {
+				return scoreTable[(code1 << tableShift) | code2];
+			}
+		}
+		return computeScore(c1, c2);
+	}
+	
+	/**
+	 * computes the score for two characters without using the compiled score table
+	 * @return the score
+	 */
+	private float computeScore(char c1, char c2){
 		if (Settings.scoring == null) {									// if no scoring matrix was given -> default scoring
 			return Scorer.getInstance().getDefaultScore(c1, c2);
 		}
@@ -99,6 +256,22 @@ public class Scorer {
 		return scoreMissMatch;
 	}
 	
+	/**
+	 * computes the Sum of Pairs Score for all possible pairs of n alphabet codes
+	 * @param codes - the codes to score
+	 * @return the score
+	 */
+	public float getScoreSumOfPairs(byte... codes){
+		float score = 0;
+		for (int i = 0; i < codes.length-1; i++) {
+			int row = codes[i] << tableShift;
+			for (int j = i+1; j < codes.length; j++) {
+				score += scoreTable[row | codes[j]];
+			}
+		}
+		return score;
+	}
+	
 	/**
 	 * computes the Sum of Pairs Score for all possible  pairs of n characters
 	 * @param chars - the chars to score
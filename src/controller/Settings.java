@@ -20,6 +20,50 @@ public class Settings {
 	public static HashMap<Character, ArrayList<Character>> codes;
 	/** the name of this alignment */
 	public static String name;
+	/** true if the scores are scaled to fixed-point integers, so the float sums of the DP and the tests of the backtrack are exact below 2^24 (see Scorer.compile) */
+	public static boolean integerScoring = false;
+	/** the fixed-point scale of the integer scoring (0: the smallest power of ten that turns every score into an integer) */
+	public static int scoreScale = 0;
+	/** true if the integer scoring may store the matrices as short values when the score range allows it */
+	public static boolean shortStorage = false;
+	/** true if the float matrices are stored off-heap (Matrices with more than 2^31 entries are always stored off-heap) */
+	public static boolean offHeapStorage = false;
+	/** the directory of the memory-mapped matrix files (null: matrices are kept in memory) */
+	public static String scratchDirectory = null;
+	/** the minimal number of entries of a Matrix to be memory-mapped if a scratch directory is given */
+	public static long mappedStorageMinSize = 1 << 20;
+	/** the number of threads computing independent States in parallel */
+	public static int parallelism = Runtime.getRuntime().availableProcessors();
+	/** true if the cells of the full state passes are computed in parallel hyperplane by hyperplane (wavefront) */
+	public static boolean wavefront = false;
+	/** the number of cells a wavefront task computes without splitting it */
+	public static int wavefrontGrain = 4096;
+	/** true if the matrices are computed tile by tile, false if not (null: if a Matrix does not fit into the lastLevelCacheSize), off by default since the row loop streams the rows as fast */
+	public static Boolean tiling = false;
+	/** the length of a tile in every dimension (0: a tile fits into the tileCacheSize) */
+	public static int tileLength = 0;
+	/** the size of the cache a tile should fit into (bytes, L2) */
+	public static int tileCacheSize = 256 * 1024;
+	/** the size of the last level cache (bytes), larger matrices are computed tile by tile */
+	public static long lastLevelCacheSize = 8 * 1024 * 1024;
+	/** true if the HasseGraph is generated in closed form (see Lattice) instead of activating and finishing the sequences round by round */
+	public static boolean latticeGenerator = false;
+	/** the score of a known alignment, states which can not be passed by an alignment scoring at least this bound are not computed (null: no pruning by bound) */
+	public static Float pruneLowerBound = null;
+	/** true if the boundary planes are shared between states with the same plane passes (see PlaneCache) */
+	public static boolean planeCache = true;
+	/** true if the full passes record the backtrack steps of their cells (see Traceback), so the backtrack does not search them */
+	public static boolean traceback = false;
+	/** true if the score matrices no following state reads cells from keep only their boundary and a few hyperplanes (see HyperplaneStorage), their paths are recomputed */
+	public static boolean linearSpace = false;
+	/** the number of bytes the checkpoint hyperplanes of these matrices may take, the backtrack recomputes from them (null: no checkpoints, see linearSpace) */
+	public static Long checkpointBudget = null;
+	/** true if only the score and the max final state are computed: no backtrack, the large matrices no following state reads cells from keep a few hyperplanes only */
+	public static boolean scoreOnly = false;
+	/** the minimal number of entries of a Matrix keeping a few hyperplanes only in score-only mode (the hyperplane passes are slower than the rows, default: a quarter of the heap) */
+	public static long scoreOnlyHyperplaneMinSize = Runtime.getRuntime().maxMemory() / 4 / 4;
+	/** the number of bytes the shared boundary planes may take at once */
+	public static long planeCacheSize = 256L * 1024 * 1024;
 	
 	
 	/** reads all the given files and extracts sequences, locality and scoring */
@@ -31,6 +75,7 @@ public class Settings {
 		}
 		Settings.codes = Reader.readCodes(codeFilePath);
 		Sequence[] sequences = Reader.readLocality(localityPath,  Reader.readSequences(sequencesFilePath));
+		Scorer.getInstance().compile(sequences);
 		if (sequencesFilePath.contains(File.separator)) {
 			Settings.name = sequencesFilePath.substring(sequencesFilePath.lastIndexOf(File.separator)+1, sequencesFilePath.lastIndexOf("."));	
 		}
@@ -1,6 +1,8 @@
 package model;
 
+import controller.Scorer;
 import model.hasse.HasseGraph;
+import model.hasse.State;
 
 /**
  * Objects of this class are representing alignments containing the aligned sequences and the score.
@@ -16,6 +18,8 @@ public class Alignment {
 	private float score;
 	/** the generated hasseGraph */
 	private HasseGraph hasseGraph;
+	/** the final State of the HasseGraph with the max score (null if no HasseGraph is given) */
+	private State maxFinalState;
 	
 	/**
 	 * generates a new Alignment with a given Array of chars representing the aligned sequences
@@ -26,7 +30,7 @@ public class Alignment {
 	public Alignment(Sequence[] sequences, Sequence[] alignedSequences, Matrix scoreMatrix) {
 		this.sequences = sequences;
 		this.alignedSequences = alignedSequences;
-		this.score = scoreMatrix.getScore();
+		this.score = scoreMatrix.getScore() / Scorer.getInstance().getScale();
 		this.hasseGraph = null;
 	}
 	
@@ -39,10 +43,19 @@ public class Alignment {
 	public Alignment(Sequence[] alignedSequences, HasseGraph hasseGraph) {
 		this.sequences = hasseGraph.getSequences();
 		this.alignedSequences = alignedSequences;
-		this.score = hasseGraph.getMaxFinalState().getScore(sequences);
+		this.maxFinalState = hasseGraph.getMaxFinalState();
+		this.score = maxFinalState.getScore(sequences) / Scorer.getInstance().getScale();
 		this.hasseGraph = hasseGraph;
 	}
 	
+	/**
+	 * generates a new Alignment without aligned sequences (the score and the max final state of the HasseGraph only)
+	 * use this if the score is computed without backtrack
+	 */
+	public Alignment(HasseGraph hasseGraph) {
+		this(null, hasseGraph);
+	}
+	
 	/** @return a String representation of this object */
 	@Override
 	public String toString() {
@@ -61,7 +74,10 @@ public class Alignment {
 		s += "==========================================================\n";
 		s += "ALIGNMENT:\n";
 		s += "----------------------------------------------------------\n";
-		for (int i = 0; i < alignedSequences.length; i++) {
+		if (alignedSequences == null) {
+			s += "not computed (score only), max final state: " + maxFinalState.toShortString() + "\n";
+		}
+		for (int i = 0; alignedSequences != null && i < alignedSequences.length; i++) {
 			if (alignedSequences[i].isGlobalLeft()) {
 				s += "[ ";
 			} else {
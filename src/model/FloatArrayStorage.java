@@ -0,0 +1,41 @@
+package model;
+
+/**
+ * stores the values of a Matrix in a float array on the heap
+ * @author Falco
+ */
+public class FloatArrayStorage implements FloatStorage {
+  // object definition
+	/** the values */
+	private float[] values;
+	
+	public FloatArrayStorage(int length) {
+		this.values = new float[length];
+	}
+	
+	@Override
+	public float get(long index) {
+		return values[(int) index];
+	}
+	
+	@Override
+	public void set(float value, long index) {
+		values[(int) index] = value;
+	}
+	
+	/** @return the values (the cells of a Matrix are read and written directly by its passes) */
+	public float[] getValues() {
+		return values;
+	}
+	
+	@Override
+	public long getLength() {
+		return values.length;
+	}
+	
+	@Override
+	public void free() {
+		values = null;
+	}
+	
+}
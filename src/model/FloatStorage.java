@@ -0,0 +1,22 @@
+package model;
+
+/**
+ * A FloatStorage stores the flat (1-dimensional) values of a Matrix.
+ * Implementations decide how the values are kept (e.g. as floats or as fixed-point integers).
+ * @author Falco
+ */
+public interface FloatStorage {
+	
+	/** @return the value at the given index */
+	public float get(long index);
+	
+	/** sets the value at the given index */
+	public void set(float value, long index);
+	
+	/** @return the number of stored values */
+	public long getLength();
+	
+	/** releases the stored values, the storage must not be used afterwards */
+	public void free();
+	
+}
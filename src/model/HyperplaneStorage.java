@@ -0,0 +1,251 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * stores the values of a Matrix in linear space: the boundary cells (cells with a 0 index) are kept, the interior cells
+ * only for the hyperplanes (index sum i1+...+in = k) which are stored at the moment. A cell depends on the n previous
+ * hyperplanes only, so a pass over the hyperplanes needs n+1 of them at once instead of the whole Matrix.
+ * The hyperplanes are stored and released by the computation (see allocateHyperplane), single cells can be kept beyond their hyperplane.
+ * Checkpoints (runs of n hyperplanes every k hyperplanes) are not released, so the computation can restart from them.
+ * Reading or writing an interior cell of a hyperplane which is not stored is an error.
+ * @author Falco
+ */
+public class HyperplaneStorage implements FloatStorage {
+  // object definition
+	/** the length of each dimension of the Matrix */
+	private int[] lengths;
+	/** the flat offset between two neighbouring entries of each dimension of the Matrix */
+	private long[] strides;
+	/** the number of cells of the Matrix */
+	private long length;
+	/** the boundary cells, face j holds the cells whose first 0 index is index j (stored as a Matrix without dimension j) */
+	private float[][] faces;
+	/** the offset between two neighbouring entries of each dimension in each face (0 for the dimension of the face) */
+	private long[][] faceStrides;
+	/** the offset between two neighbouring entries of each dimension in a hyperplane (0 for the longest dimension, its index follows from the sum) */
+	private long[] hyperplaneStrides;
+	/** the number of entries of a hyperplane */
+	private int hyperplaneSize;
+	/** the interior cells of the stored hyperplanes by index sum (null: not stored) */
+	private float[][] hyperplanes;
+	/** true for the hyperplanes of the checkpoints (they are not released) */
+	private boolean[] checkpoints;
+	/** released hyperplanes to be reused */
+	private ArrayDeque<float[]> releasedHyperplanes = new ArrayDeque<>();
+	/** single interior cells kept after their hyperplane was released */
+	private HashMap<Long, Float> keptCells = new HashMap<>();
+
+	/**
+	 * generates a new HyperplaneStorage with boundary cells of value 0 and no stored hyperplane
+	 * @param lengths - the length of each dimension of the Matrix
+	 */
+	public HyperplaneStorage(int... lengths) {
+		this.lengths = lengths;
+		this.strides = new long[lengths.length];
+		this.length = 1;
+		int longest = 0;
+		int maxSum = 0;
+		for (int i = lengths.length-1; i >= 0; i--) {
+			strides[i] = length;
+			length *= lengths[i];
+			maxSum += lengths[i] -1;
+			if (lengths[i] > lengths[longest]) { longest = i; }
+		}
+		this.faces = new float[lengths.length][];
+		this.faceStrides = new long[lengths.length][];
+		for (int j = 0; j < lengths.length; j++) {
+			faceStrides[j] = getStrides(j);
+			faces[j] = new float[getSize(length / lengths[j])];
+		}
+		this.hyperplaneStrides = getStrides(longest);
+		this.hyperplaneSize = getSize(length / lengths[longest]);
+		this.hyperplanes = new float[maxSum+1][];
+		this.checkpoints = new boolean[maxSum+1];
+	}
+
+	/** @return the strides of the Matrix without the given dimension (0 for the dimension) */
+	private long[] getStrides(int leftOut) {
+		long[] strides = new long[lengths.length];
+		long stride = 1;
+		for (int i = lengths.length-1; i >= 0; i--) {
+			if (i != leftOut) {
+				strides[i] = stride;
+				stride *= lengths[i];
+			}
+		}
+		return strides;
+	}
+
+	/** @return the size as int (a face or a hyperplane has to fit into an array) */
+	private static int getSize(long size) {
+		if (size > Integer.MAX_VALUE) {
+			throw new java.lang.Error("HyperplaneStorage: a hyperplane or a boundary face has more than " + Integer.MAX_VALUE + " entries: " + size);
+		}
+		return (int) size;
+	}
+
+	/** @return the offset of the boundary cell in the face of its first 0 index */
+	private int getFaceOffset(long index, int face) {
+		long faceOffset = 0;
+		for (int i = 0; i < lengths.length; i++) {
+			long x = index / strides[i];
+			index -= x * strides[i];
+			faceOffset += x * faceStrides[face][i];
+		}
+		return (int) faceOffset;
+	}
+
+	@Override
+	public float get(long index) {
+		long rest = index;
+		int sum = 0;
+		long hyperplaneOffset = 0;
+		for (int i = 0; i < lengths.length; i++) {
+			long x = rest / strides[i];
+			if (x == 0) {															// a boundary cell
+				return faces[i][getFaceOffset(index, i)];
+			}
+			rest -= x * strides[i];
+			sum += x;
+			hyperplaneOffset += x * hyperplaneStrides[i];
+		}
+		if (hyperplanes[sum] == null) {
+			Float value = keptCells.get(index);
+			if (value == null) {
+				throw new java.lang.Error("HyperplaneStorage.get: the hyperplane " + sum + " is not stored");
+			}
+			return value;
+		}
+		return hyperplanes[sum][(int) hyperplaneOffset];
+	}
+
+	@Override
+	public void set(float value, long index) {
+		long rest = index;
+		int sum = 0;
+		long hyperplaneOffset = 0;
+		for (int i = 0; i < lengths.length; i++) {
+			long x = rest / strides[i];
+			if (x == 0) {															// a boundary cell
+				faces[i][getFaceOffset(index, i)] = value;
+				return;
+			}
+			rest -= x * strides[i];
+			sum += x;
+			hyperplaneOffset += x * hyperplaneStrides[i];
+		}
+		if (hyperplanes[sum] == null) {
+			throw new java.lang.Error("HyperplaneStorage.set: the hyperplane " + sum + " is not stored");
+		}
+		hyperplanes[sum][(int) hyperplaneOffset] = value;
+	}
+
+	/**
+	 * returns the interior cells of a stored hyperplane, so a pass over the hyperplanes can read and write them at running offsets
+	 * instead of decoding every flat index (the offset of a cell is the sum of its indices times the hyperplane strides)
+	 * @param sum - the index sum of the hyperplane
+	 * @return the cells by offset in the hyperplane, null if the hyperplane is not stored
+	 */
+	public float[] getHyperplane(int sum) {
+		return sum >= 0 && sum < hyperplanes.length ? hyperplanes[sum] : null;
+	}
+
+	/** @return the offset between two neighbouring entries of each dimension in a hyperplane (see getHyperplane) */
+	public long[] getHyperplaneStrides() {
+		return hyperplaneStrides;
+	}
+
+	/**
+	 * returns the boundary cells whose first 0 index is the given dimension, so a pass can read and write them without decoding a flat index
+	 * (the offset of a cell is the sum of its indices times the face strides)
+	 * @param dimension - the dimension of the face
+	 * @return the cells by offset in the face
+	 */
+	public float[] getFace(int dimension) {
+		return faces[dimension];
+	}
+
+	/** @return the offset between two neighbouring entries of each dimension in the face of the given dimension (see getFace) */
+	public long[] getFaceStrides(int dimension) {
+		return faceStrides[dimension];
+	}
+
+	/** stores the interior cells of the hyperplane with the given index sum (their values are undefined until they are set) */
+	public synchronized void allocateHyperplane(int sum) {
+		if (hyperplanes[sum] == null) {
+			float[] hyperplane = releasedHyperplanes.poll();
+			hyperplanes[sum] = hyperplane != null ? hyperplane : new float[hyperplaneSize];
+		}
+	}
+
+	/**
+	 * sets the checkpoints: the hyperplanes interval-count+1 ... interval, 2*interval-count+1 ... 2*interval and so on are not released
+	 * @param interval - the index sum between two checkpoints (at least count)
+	 * @param count - the number of hyperplanes of a checkpoint
+	 */
+	public void setCheckpoints(int interval, int count) {
+		for (int sum = 0; sum < checkpoints.length; sum++) {
+			checkpoints[sum] = sum >= count && (interval - sum % interval) % interval < count;	// the first hyperplanes have no interior cells
+		}
+	}
+	
+	/**
+	 * @param sum - an index sum
+	 * @param count - the number of hyperplanes a computation restarts from
+	 * @return the largest index sum below the given one whose hyperplane and the count-1 hyperplanes before are stored (count-1 if there is none)
+	 */
+	public synchronized int getStoredBelow(int sum, int count) {
+		int run = 0;
+		for (int k = Math.min(sum, hyperplanes.length) -1; k >= count; k--) {
+			run = hyperplanes[k] != null ? run+1 : 0;
+			if (run == count) {
+				return k + count -1;
+			}
+		}
+		return count -1;
+	}
+
+	/** releases the interior cells of the hyperplane with the given index sum (if it is stored and no checkpoint) */
+	public synchronized void releaseHyperplane(int sum) {
+		if (sum >= 0 && sum < hyperplanes.length && hyperplanes[sum] != null && !checkpoints[sum]) {
+			releasedHyperplanes.push(hyperplanes[sum]);
+			hyperplanes[sum] = null;
+		}
+	}
+
+	/** releases all the stored hyperplanes except the checkpoints (the arrays are dropped) */
+	public synchronized void releaseHyperplanes() {
+		for (int sum = 0; sum < hyperplanes.length; sum++) {
+			if (!checkpoints[sum]) {
+				hyperplanes[sum] = null;
+			}
+		}
+		releasedHyperplanes.clear();
+	}
+
+	/** keeps the value of an interior cell, so it can be read after its hyperplane is released */
+	public synchronized void keep(long index, float value) {
+		keptCells.put(index, value);
+	}
+
+	/** @return the largest index sum of the Matrix (the number of hyperplanes -1) */
+	public int getMaxSum() {
+		return hyperplanes.length -1;
+	}
+
+	@Override
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public void free() {
+		faces = null;
+		hyperplanes = null;
+		releasedHyperplanes.clear();
+		keptCells.clear();
+	}
+
+}
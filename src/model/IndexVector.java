@@ -138,6 +138,30 @@ public class IndexVector {
 		return data;
 	}
 
+	/** adds the vectorToAdds data to the values of this vector (in place, nothing is allocated) */
+	public void add(IndexVector vectorToAdd){
+		for (int i = 0; i < data.length; i++) {
+			data[i] += vectorToAdd.data[i];
+		}
+	}
+	
+	/** sets the values of this vector to the values of the given vector (in place, nothing is allocated) */
+	public void set(IndexVector vector){
+		for (int i = 0; i < data.length; i++) {
+			data[i] = vector.data[i];
+		}
+	}
+	
+	/** @return true if this vector plus the vectorToAdd would have a negative entry, false otherwise (nothing is allocated) */
+	public boolean hasNegetiveEntry(IndexVector vectorToAdd){
+		for (int i = 0; i < data.length; i++) {
+			if (data[i] + vectorToAdd.data[i] < 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/** sets every entry of this vector to 0 */
 	public void setToNullVector() {
 		for (int i = 0; i < data.length; i++) {
@@ -0,0 +1,42 @@
+package model;
+
+/**
+ * stores the values of a Matrix as fixed-point integers in an int array (used by the integer scoring)
+ * every value has to be an integer (scaled scores), so storing and reading them is exact
+ * @author Falco
+ */
+public class IntArrayStorage implements FloatStorage {
+  // object definition
+	/** the values */
+	private int[] values;
+	
+	public IntArrayStorage(int length) {
+		this.values = new int[length];
+	}
+	
+	/** @return the values (the cells of a Matrix are read and written directly by its passes) */
+	public int[] getValues() {
+		return values;
+	}
+	
+	@Override
+	public float get(long index) {
+		return values[(int) index];
+	}
+	
+	@Override
+	public void set(float value, long index) {
+		values[(int) index] = Math.round(value);
+	}
+	
+	@Override
+	public long getLength() {
+		return values.length;
+	}
+	
+	@Override
+	public void free() {
+		values = null;
+	}
+	
+}
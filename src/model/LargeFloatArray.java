@@ -2,8 +2,15 @@ package model;
 
 import java.lang.reflect.Field;
 
-public class LargeFloatArray {
+/**
+ * stores the values of a Matrix off-heap (not on the Java heap) using long indices,
+ * so Matrices with more than 2^31 entries can be stored. The memory has to be released by free().
+ * @author Falco
+ */
+public class LargeFloatArray implements FloatStorage {
 	private final static int FLOAT_BYTE_SIZE = 4;
+	/** the Unsafe used to access the off-heap memory (looked up once) */
+	private final static sun.misc.Unsafe UNSAFE = getUnsafe();
 	
 	private long address;
 	private long length;
@@ -18,23 +25,45 @@ public class LargeFloatArray {
 	    return null;
 	}
 	
+	/**
+	 * unmaps a mapped buffer at once, otherwise its pages stay mapped until the gc collects it (a no-op if Unsafe is not available).
+	 * The Unsafe access is kept here, next to the one of the off-heap memory, there is no supported way to unmap a buffer.
+	 * @param buffer - the buffer, it must not be accessed afterwards
+	 */
+	static void unmap(java.nio.MappedByteBuffer buffer) {
+		if (UNSAFE != null) {
+			UNSAFE.invokeCleaner(buffer);
+		}
+	}
+	
 	public LargeFloatArray(long length) {
+		if (UNSAFE == null) {
+			throw new java.lang.Error("LargeFloatArray: off-heap memory is not available");
+		}
 		this.length = length;
-		address = getUnsafe().allocateMemory(length * FLOAT_BYTE_SIZE);
+		address = UNSAFE.allocateMemory(length * FLOAT_BYTE_SIZE);
+		UNSAFE.setMemory(address, length * FLOAT_BYTE_SIZE, (byte) 0);		// 0f like a new float array
 	}
 	
+	@Override
 	public void set(float value, long index) {
-	    getUnsafe().putFloat(address + index * FLOAT_BYTE_SIZE, value);
+	    UNSAFE.putFloat(address + index * FLOAT_BYTE_SIZE, value);
 	  }
 	    
+	@Override
 	  public float get(long index) {
-	    return getUnsafe().getFloat(address + index * FLOAT_BYTE_SIZE);   
+	    return UNSAFE.getFloat(address + index * FLOAT_BYTE_SIZE);   
 	  }
 	    
+	@Override
 	  public void free() {
-	    getUnsafe().freeMemory(address);
+		if (address != 0) {													// free only once
+			UNSAFE.freeMemory(address);
+			address = 0;
+		}
 	}
 
+	@Override
 	public long getLength() {
 		return length;
 	}
@@ -0,0 +1,107 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * stores the values of a Matrix in a memory-mapped scratch file using long indices.
+ * The file is mapped in segments of 2^SEGMENT_SHIFT floats, so Matrices larger than the physical memory can be stored
+ * and only the recently used pages stay resident (the Matrices are accessed sequentially, hyperplane by hyperplane).
+ * The file is deleted as soon as its segments are mapped (the mappings keep its pages), so no scratch file is left behind
+ * if the program is interrupted or fails; free() unmaps the segments, which releases the pages at once (see LargeFloatArray.unmap).
+ * @author Falco
+ */
+public class MappedFloatStorage implements FloatStorage {
+  // static definition
+	private final static int FLOAT_BYTE_SIZE = 4;
+	/** log2 of the floats per segment (2^28 floats = 1 GiB per mapping) */
+	private final static int SEGMENT_SHIFT = 28;
+	/** the mask of the index in a segment */
+	private final static long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+	
+  // object definition
+	/** the scratch file */
+	private File file;
+	/** the open scratch file */
+	private RandomAccessFile randomAccessFile;
+	/** the mapped segments of the scratch file */
+	private MappedByteBuffer[] segments;
+	/** the number of stored values */
+	private long length;
+	
+	/**
+	 * generates a new zero filled scratch file in the given directory and maps it
+	 * @param length - the number of values
+	 * @param directory - the scratch directory
+	 */
+	public MappedFloatStorage(long length, File directory) {
+		this.length = length;
+		try {
+			directory.mkdirs();
+			this.file = File.createTempFile("matrix", ".scratch", directory);
+		} catch (IOException e) {
+			throw new java.lang.Error("MappedFloatStorage: cannot create a scratch file in " + directory + ": " + e.getMessage());
+		}
+		try {
+			this.randomAccessFile = new RandomAccessFile(file, "rw");
+			this.randomAccessFile.setLength(length * FLOAT_BYTE_SIZE);				// a new file is filled with zeros (like a new float array)
+			FileChannel channel = randomAccessFile.getChannel();
+			this.segments = new MappedByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+			for (int i = 0; i < segments.length; i++) {
+				long position = ((long) i << SEGMENT_SHIFT) * FLOAT_BYTE_SIZE;
+				long size = Math.min(SEGMENT_MASK + 1, length - ((long) i << SEGMENT_SHIFT)) * FLOAT_BYTE_SIZE;
+				segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+			}
+		} catch (IOException e) {
+			if (segments != null) {
+				for (MappedByteBuffer segment : segments) {
+					if (segment != null) { LargeFloatArray.unmap(segment); }
+				}
+				segments = null;
+			}
+			close();
+			file.delete();
+			throw new java.lang.Error("MappedFloatStorage: cannot map a scratch file in " + directory + ": " + e.getMessage());
+		}
+		if (!file.delete()) {														// the mapped pages stay valid (POSIX)
+			file.deleteOnExit();													// a mapped file can not be deleted (Windows): free deletes it
+		}
+	}
+	
+	/** closes the scratch file (the mapped segments stay valid) */
+	private void close() {
+		try {
+			if (randomAccessFile != null) { randomAccessFile.close(); }
+		} catch (IOException e) { /* nothing is written through the file */ }
+	}
+	
+	@Override
+	public float get(long index) {
+		return segments[(int) (index >>> SEGMENT_SHIFT)].getFloat((int) (index & SEGMENT_MASK) * FLOAT_BYTE_SIZE);
+	}
+	
+	@Override
+	public void set(float value, long index) {
+		segments[(int) (index >>> SEGMENT_SHIFT)].putFloat((int) (index & SEGMENT_MASK) * FLOAT_BYTE_SIZE, value);
+	}
+	
+	@Override
+	public long getLength() {
+		return length;
+	}
+	
+	@Override
+	public void free() {
+		if (segments == null) { return; }										// free only once
+		for (MappedByteBuffer segment : segments) {
+			LargeFloatArray.unmap(segment);											// unmap at once (otherwise the pages stay mapped until gc)
+		}
+		segments = null;
+		close();
+		file.delete();																// if it could not be deleted while it was mapped
+	}
+	
+}
@@ -1,31 +1,102 @@
 package model;
 
+import java.io.File;
+import java.util.HashMap;
+
+import controller.Settings;
+
 /**
  * Objects of this class are representing represent lengths.length-dimensional Matrices stored in 1-dimensional matrices. lengths.length-dimensional indices are mapped to 1-dimensional indices.
  * @author Falco
  */
 public class Matrix {
+  // static definition
+	/** the kinds of storage a Matrix can use */
+	public enum StorageType {
+		/** float values */
+		FLOAT,
+		/** fixed-point int values (integer scoring) */
+		INT,
+		/** fixed-point short values (integer scoring with a small score range) */
+		SHORT,
+		/** float values off-heap (long indexed, used for Matrices with more than 2^31 entries) */
+		OFF_HEAP,
+		/** float values in a memory-mapped scratch file (see Settings.scratchDirectory) */
+		MAPPED,
+		/** float values of the boundary cells and of a few hyperplanes only (linear space, see HyperplaneStorage) */
+		HYPERPLANES
+	}
+	
+	/** allocates a storage of the given type and length (off-heap if the length exceeds an array) */
+	private static FloatStorage allocate(StorageType storageType, long length, int[] lengths) {
+		if (length > Integer.MAX_VALUE && storageType != StorageType.MAPPED && storageType != StorageType.HYPERPLANES) {
+			storageType = StorageType.OFF_HEAP;
+		}
+		switch (storageType) {
+		case INT:
+			return new IntArrayStorage((int) length);
+		case SHORT:
+			return new ShortArrayStorage((int) length);
+		case OFF_HEAP:
+			return new LargeFloatArray(length);
+		case MAPPED:
+			return new MappedFloatStorage(length, new File(Settings.scratchDirectory));
+		case HYPERPLANES:
+			return new HyperplaneStorage(lengths);
+		default:
+			return new FloatArrayStorage((int) length);
+		}
+	}
+	
   // object definition
 	/** * the 1-dimensional (flat) matrix */
-	private float[] flatMatrix;
+	private FloatStorage flatMatrix;
 	/** the length of each dimension */
 	private int[] lengths;
 	/** the DimensionsCount = SequencesCount */
 	private int dimensions;
+	/** the flat offset between two neighbouring entries of each dimension (the last dimension is stored contiguously) */
+	private long[] strides;
+	/** the max score of this Matrix (valid if maxScoreIndices != null) */
+	private float maxScore;
+	/** the indices of the (first) max score of this Matrix (null if not known yet) */
+	private IndexVector maxScoreIndices;
+	/** the computed max projections by their kept dimensions mask (see getMaxProjection) */
+	private HashMap<Integer, MaxProjection> maxProjections = new HashMap<>();
+	/** the backtrack steps recorded while this Matrix is filled (null if they are not recorded) */
+	private Traceback traceback;
+	/** the score of this Matrix after its cells were released (null: the cells are kept, see releaseCells) */
+	private Float releasedScore;
 	
 	/**
 	 * generates a new 1-dimensional (flat) score-Matrix with length max(lengths)^lengths(size)
 	 * to store the Alignment scores at each position of the Alignment
+	 * @param storageType - the kind of storage to use
 	 * @param legth -	the length of each dimension
 	 */
-	public Matrix(int... lengths) {
+	public Matrix(StorageType storageType, int... lengths) {
 		this.dimensions = lengths.length;
 		this.lengths = lengths;
-		int length = lengths[0];
+		this.strides = new long[lengths.length];
+		long stride = 1;
+		for (int i = lengths.length-1; i >= 0; i--) {
+			strides[i] = stride;
+			stride *= lengths[i];
+		}
+		long length = lengths[0];
 		for (int i = 1; i < lengths.length; i++) {
 			length *= lengths[i];
 		}
-		flatMatrix = new float[length];
+		flatMatrix = allocate(storageType, length, lengths);
+	}
+	
+	/**
+	 * generates a new 1-dimensional (flat) score-Matrix with length max(lengths)^lengths(size)
+	 * to store the Alignment scores at each position of the Alignment
+	 * @param legth -	the length of each dimension
+	 */
+	public Matrix(int... lengths) {
+		this(StorageType.FLOAT, lengths);
 	}
 	
 	/**
@@ -34,17 +105,17 @@ public class Matrix {
 	 * @param sequences - the sequences for which the score-Matrix is needed
 	 */
 	public Matrix(char[]... sequences) {
-		this.dimensions = sequences.length;
-		int[] lengths = new int[sequences.length];
-		for (int i = 0; i < lengths.length; i++) {
-			lengths[i] = sequences[i].length+1;
-		}
-		this.lengths = lengths;
-		int length = lengths[0];
-		for (int i = 1; i < lengths.length; i++) {
-			length *= lengths[i];
-		}
-		flatMatrix = new float[length];
+		this(StorageType.FLOAT, getLengths(sequences));
+	}
+	
+	/**
+	 * generates a new 1-dimensional (flat) score-Matrix with length max(lengths)^sequences(size)
+	 * to store the Alignment scores at each position of the Alignment
+	 * @param storageType - the kind of storage to use
+	 * @param sequences - the sequences for which the score-Matrix is needed
+	 */
+	public Matrix(StorageType storageType, Sequence... sequences) {
+		this(storageType, getLengths(sequences));
 	}
 	
 	/**
@@ -53,17 +124,34 @@ public class Matrix {
 	 * @param sequences - the sequences for which the score-Matrix is needed
 	 */
 	public Matrix(Sequence... sequences) {
-		this.dimensions = sequences.length;
+		this(StorageType.FLOAT, sequences);
+	}
+	
+	/** @return the dimension lengths (sequence length + 1) of the given sequences */
+	private static int[] getLengths(char[]... sequences) {
 		int[] lengths = new int[sequences.length];
 		for (int i = 0; i < lengths.length; i++) {
-			lengths[i] = sequences[i].getLength()+1;
+			lengths[i] = sequences[i].length+1;
 		}
-		this.lengths = lengths;
-		int length = lengths[0];
-		for (int i = 1; i < lengths.length; i++) {
-			length *= lengths[i];
+		return lengths;
+	}
+	
+	/** @return the number of entries of a Matrix for the given sequences */
+	public static long getSize(Sequence... sequences) {
+		long size = 1;
+		for (Sequence sequence : sequences) {
+			size *= sequence.getLength()+1;
 		}
-		flatMatrix = new float[length];
+		return size;
+	}
+	
+	/** @return the dimension lengths (sequence length + 1) of the given sequences */
+	private static int[] getLengths(Sequence... sequences) {
+		int[] lengths = new int[sequences.length];
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = sequences[i].getLength()+1;
+		}
+		return lengths;
 	}
 	
 	/** @return a String representation of this object */
@@ -76,6 +164,11 @@ public class Matrix {
 		if (lengths[0] == 0) {
 			s += "[VOID MATRIX]";
 		}
+		if (flatMatrix == null) {
+			s += "[FREED MATRIX]\n";
+			s += "==========================================================\n";
+			return s;
+		}
 		if (this.dimensions == 1) {
 			for (int i = 0; i < lengths[0]; i++) {
 				s += get(new int[] {i}) + " | ";
@@ -141,6 +234,9 @@ public class Matrix {
 
 	/** @return the score of this Matrix (right bottom entry) */
 	public float getScore(){
+		if (releasedScore != null) {
+			return releasedScore;
+		}
 		if (lengths[0] == 0) {
 			return 0f;
 		}
@@ -156,8 +252,12 @@ public class Matrix {
 	 * @return the maximal score of this Matrix
 	 */
 	public float getMaxScore() {
+		if (maxScoreIndices != null) {
+			return maxScore;														// recorded while the Matrix was filled
+		}
 		float max = Float.NEGATIVE_INFINITY;
-		for (float f : flatMatrix) {
+		for (long i = 0; i < flatMatrix.getLength(); i++) {
+			float f = flatMatrix.get(i);
 			if (f >= max) {
 				max = f;
 			}
@@ -170,7 +270,10 @@ public class Matrix {
 	 * @return the indices of the maximal score of this Matrix
 	 */
 	public IndexVector getMaxScoreIndices() {
-		if (this.flatMatrix.length == 0) { return null; }
+		if (maxScoreIndices != null) {
+			return maxScoreIndices;													// recorded while the Matrix was filled
+		}
+		if (this.flatMatrix.getLength() == 0) { return null; }
 		int[] data = new int[dimensions];
 		IndexVector indices = new IndexVector(data);
 		boolean b = false;
@@ -199,18 +302,14 @@ public class Matrix {
 	}
 	
 	/** maps the DimensionCount-dimensional indices to 1-dimensional indices */
-	private int getFlatIndex(int[] indices){
+	private long getFlatIndex(int[] indices){
 		if (lengths.length == indices.length) {
-			int flatIndex = 0;
-			int multiplier = 1;
-			
+			long flatIndex = 0;
 			for (int i = 0; i < indices.length; i++) {
-				int index = indices[i]+1;
-				if (index <= lengths[i]) {
-					flatIndex += multiplier * (index-1);
-					multiplier *= lengths[i];
+				if (indices[i] < lengths[i]) {
+					flatIndex += strides[i] * indices[i];
 				} else {
-					throw new java.lang.Error("Matrix.get: ArrayIndexOutOfBoundsException: " + (index-1));
+					throw new java.lang.Error("Matrix.get: ArrayIndexOutOfBoundsException: " + indices[i]);
 				}
 			}
 			return flatIndex;
@@ -219,6 +318,36 @@ public class Matrix {
 		}
 	}
 	
+	/**
+	 * maps indices to the flat offset of this Matrix without any checks
+	 * @param indices - the position in whole Matrix
+	 * @return the flat offset of the position
+	 */
+	public long getOffset(int[] indices) {
+		long offset = 0;
+		for (int i = 0; i < indices.length; i++) {
+			offset += strides[i] * indices[i];
+		}
+		return offset;
+	}
+	
+	/**
+	 * maps reduced indices (indices*indicesToUse) to the flat offset of this Matrix without any checks, every other index is 0
+	 * @param indices - the position in the (hyper) plane
+	 * @param indicesToUse - the indices of the indices to use (if null use all)
+	 * @return the flat offset of the projected position
+	 */
+	public long getOffset(int[] indices, int[] indicesToUse) {
+		if (indicesToUse == null) {
+			return getOffset(indices);
+		}
+		long offset = 0;
+		for (int i = 0; i < indicesToUse.length; i++) {
+			offset += strides[indicesToUse[i]] * indices[i];
+		}
+		return offset;
+	}
+	
 	/**
 	 * returns the value at the position of the Matrix by using reduced indexlists (indices*indicesToUse)
 	 * this function is used to initiate the Matrix edges, planes and hyperplanes 
@@ -231,18 +360,7 @@ public class Matrix {
 		if (indicesToUse == null || indicesToUse.length == this.dimensions) {
 			return get(indices);
 		}
-		
-		// if not all use only indices to use
-		int[] newIndices = new int[this.dimensions];
-		// set everything to 0 
-		for (int i = 0; i < newIndices.length; i++) {
-			newIndices[i] = 0;
-		}
-		// take only indicesToUse
-		for (int i = 0; i < indicesToUse.length; i++) {
-			newIndices[indicesToUse[i]] = indices[i];
-		}
-		return flatMatrix[getFlatIndex(newIndices)];
+		return flatMatrix.get(getOffset(indices, indicesToUse));
 	}
 	
 	/**
@@ -251,7 +369,16 @@ public class Matrix {
 	 * @return the value of the position indices
 	 */
 	public float get(int[] indices){
-		return flatMatrix[getFlatIndex(indices)];
+		return flatMatrix.get(getFlatIndex(indices));
+	}
+	
+	/**
+	 * returns the value at the given flat offset (see getOffset)
+	 * @param offset - the flat offset
+	 * @return the value at the offset
+	 */
+	public float get(long offset){
+		return flatMatrix.get(offset);
 	}
 	
 	 /**
@@ -267,16 +394,7 @@ public class Matrix {
 		
 		// if not all use only indices to use
 		else {
-			int[] newIndices = new int[this.dimensions];
-			// set everything to 0 
-			for (int i = 0; i < newIndices.length; i++) {
-				newIndices[i] = 0;
-			}
-			// take only indicesToUse
-			for (int i = 0; i < indicesToUse.length; i++) {
-				newIndices[indicesToUse[i]] = indices[i];
-			}
-			flatMatrix[getFlatIndex(newIndices)] = value;
+			flatMatrix.set(value, getOffset(indices, indicesToUse));
 		}
 	}
 	
@@ -286,7 +404,171 @@ public class Matrix {
 	  * @param indices - the position
 	  */
 	public void set(float value, int[] indices){
-		flatMatrix[getFlatIndex(indices)] = value;
+		flatMatrix.set(value, getFlatIndex(indices));
+	}
+	
+	 /**
+	  * sets the value at the given flat offset (see getOffset)
+	  * @param value - the value to set
+	  * @param offset - the flat offset
+	  */
+	public void set(float value, long offset){
+		flatMatrix.set(value, offset);
+	}
+	
+	/**
+	 * returns the flat offset between two neighbouring entries of the given dimension
+	 * @param index - the dimension
+	 * @return the stride
+	 */
+	public long getStride(int index){
+		return this.strides[index];
+	}
+	
+	/**
+	 * records the max score and its indices, so getMaxScore and getMaxScoreIndices do not have to scan the Matrix
+	 * (has to be called after the last value is set, the values must not be changed afterwards)
+	 * @param maxScore - the result of getMaxScore
+	 * @param maxScoreIndices - the result of getMaxScoreIndices
+	 */
+	public void setMaxScore(float maxScore, IndexVector maxScoreIndices){
+		this.maxScore = maxScore;
+		this.maxScoreIndices = maxScoreIndices;
+	}
+	
+	/**
+	 * returns the maxima of this Matrix over the dimensions not kept (computed once, the Matrix must be complete)
+	 * @param keptMask - bit i is set if dimension i is kept
+	 * @return the projection
+	 */
+	public synchronized MaxProjection getMaxProjection(int keptMask){
+		MaxProjection maxProjection = maxProjections.get(keptMask);
+		if (maxProjection == null && flatMatrix instanceof HyperplaneStorage) {
+			throw new java.lang.Error("Matrix.getMaxProjection: the projection " + keptMask + " was not recorded while the hyperplanes were stored");
+		}
+		if (maxProjection == null) {
+			maxProjection = new MaxProjection(this, keptMask);
+			maxProjections.put(keptMask, maxProjection);
+		}
+		return maxProjection;
+	}
+	
+	/**
+	 * sets a max projection recorded while this Matrix was filled (see MaxProjection.add)
+	 * @param keptMask - bit i is set if dimension i is kept
+	 * @param maxProjection - the projection
+	 */
+	public synchronized void setMaxProjection(int keptMask, MaxProjection maxProjection){
+		maxProjections.put(keptMask, maxProjection);
+	}
+	
+	/** @return the values indexed by flat offset if this Matrix keeps them in a float array on the heap, null otherwise */
+	public float[] getFloatArray(){
+		return flatMatrix instanceof FloatArrayStorage ? ((FloatArrayStorage) flatMatrix).getValues() : null;
+	}
+	
+	/** @return the fixed-point values indexed by flat offset if this Matrix keeps them in an int array (integer scoring), null otherwise */
+	public int[] getIntArray(){
+		return flatMatrix instanceof IntArrayStorage ? ((IntArrayStorage) flatMatrix).getValues() : null;
+	}
+	
+	/** @return the fixed-point values indexed by flat offset if this Matrix keeps them in a short array (integer scoring), null otherwise */
+	public short[] getShortArray(){
+		return flatMatrix instanceof ShortArrayStorage ? ((ShortArrayStorage) flatMatrix).getValues() : null;
+	}
+	
+	/** @return the storage if this Matrix keeps its boundary cells and a few hyperplanes only (linear space), null if every cell is kept */
+	public HyperplaneStorage getHyperplaneStorage(){
+		return flatMatrix instanceof HyperplaneStorage ? (HyperplaneStorage) flatMatrix : null;
+	}
+	
+	/**
+	 * maps a flat offset to the indices of this Matrix (see getOffset)
+	 * @param offset - the flat offset
+	 * @return the indices
+	 */
+	public int[] getIndices(long offset){
+		int[] indices = new int[dimensions];
+		for (int i = 0; i < dimensions; i++) {
+			indices[i] = (int) (offset / strides[i]);
+			offset -= indices[i] * strides[i];
+		}
+		return indices;
+	}
+	
+	/** @return the number of entries of this Matrix */
+	public long getSize(){
+		return this.flatMatrix.getLength();
+	}
+	
+	/**
+	 * releases the stored values like free, but keeps the score and the max score (with its indices),
+	 * so the score of the State can still be read when no cell is needed anymore
+	 */
+	public void releaseCells(){
+		if (flatMatrix == null || flatMatrix.getLength() == 0) { return; }		// released or void
+		releasedScore = getScore();
+		if (maxScoreIndices == null) {
+			setMaxScore(getMaxScore(), getMaxScoreIndices());
+		}
+		free();
+	}
+	
+	/**
+	 * replaces the stored values by a HyperplaneStorage keeping the boundary cells only (no hyperplane is stored),
+	 * like releaseCells the score and the max score are kept, so are the max projections and the recorded backtrack steps.
+	 * The interior cells must not be read anymore: the backtrack follows the steps and the transitions read the max projections.
+	 */
+	public void releaseInterior(){
+		if (flatMatrix == null || flatMatrix.getLength() == 0 || flatMatrix instanceof HyperplaneStorage) { return; }	// released, void or shrunk
+		releasedScore = getScore();
+		if (maxScoreIndices == null) {
+			setMaxScore(getMaxScore(), getMaxScoreIndices());
+		}
+		HyperplaneStorage boundary = new HyperplaneStorage(lengths);
+		for (int j = 0; j < dimensions; j++) {
+			int[] indices = new int[dimensions];									// the cells with index j = 0
+			while (true) {
+				long offset = getOffset(indices);
+				boundary.set(flatMatrix.get(offset), offset);
+				
+				// iteration logic (every dimension except j)
+				int i = dimensions-1;
+				for (; i >= 0; i--) {
+					if (i == j) { continue; }
+					if (++indices[i] < lengths[i]) { break; }
+					indices[i] = 0;
+				}
+				if (i < 0) { break; }
+			}
+		}
+		flatMatrix.free();
+		flatMatrix = boundary;
+	}
+	
+	/** releases the stored values (off-heap memory is freed at once), the Matrix must not be used afterwards */
+	public void free(){
+		if (flatMatrix != null) {
+			flatMatrix.free();
+			flatMatrix = null;
+		}
+		maxProjections.clear();
+		traceback = null;
+	}
+	
+	/** @return the recorded backtrack steps (null if they are not recorded) */
+	public Traceback getTraceback() {
+		return traceback;
+	}
+	
+	/** @param traceback - the backtrack steps to record while this Matrix is filled */
+	public void setTraceback(Traceback traceback) {
+		this.traceback = traceback;
+	}
+	
+	/** @return the DimensionsCount = SequencesCount */
+	public int getDimensions(){
+		return this.dimensions;
 	}
 	
 	/**
@@ -0,0 +1,149 @@
+package model;
+
+/**
+ * A MaxProjection stores the maxima of a Matrix over some of its dimensions (the running dimensions, indices 1 ... length-1)
+ * for every position of the other (kept) dimensions, and the flat offsets of the first maxima in lexicographic order.
+ * It answers "the best entry of the Matrix with these kept indices" with a single array read.
+ * @author Falco
+ */
+public class MaxProjection {
+  // object definition
+	/** the kept dimensions of the Matrix (ascending) */
+	private int[] keptDimensions;
+	/** the flat offset between two neighbouring entries of each kept dimension in this projection (the last one is stored contiguously) */
+	private long[] strides;
+	/** the max score over the running dimensions for each kept position (-infinity if there is none greater) */
+	private float[] maxScores;
+	/** the flat Matrix offset of the first max score for each kept position (-1 if there is no score greater than -infinity) */
+	private long[] maxScoreOffsets;
+	
+	/**
+	 * computes the projection of the given Matrix in a single pass over the Matrix
+	 * @param matrix - the (completely computed) Matrix
+	 * @param keptMask - bit i is set if dimension i is kept
+	 */
+	public MaxProjection(Matrix matrix, int keptMask) {
+		this(matrix, keptMask, true);
+	}
+	
+	/**
+	 * generates the projection of the given Matrix
+	 * @param matrix - the Matrix
+	 * @param keptMask - bit i is set if dimension i is kept
+	 * @param scan - true: the projection is computed in a single pass over the (completely computed) Matrix,
+	 * 				 false: the projection is empty, the entries are added while the Matrix is filled (see add)
+	 */
+	public MaxProjection(Matrix matrix, int keptMask, boolean scan) {
+		int dimensions = matrix.getDimensions();
+		this.keptDimensions = new int[Integer.bitCount(keptMask)];
+		this.strides = new long[dimensions];										// the projection stride of every Matrix dimension (0 if running)
+		long size = 1;
+		for (int i = dimensions-1, j = keptDimensions.length-1; i >= 0; i--) {
+			if ((keptMask & (1 << i)) != 0) {
+				keptDimensions[j--] = i;
+				strides[i] = size;
+				size *= matrix.getLength(i);
+			}
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new java.lang.Error("MaxProjection: the projection is too large: " + size);
+		}
+		this.maxScores = new float[(int) size];
+		this.maxScoreOffsets = new long[(int) size];
+		for (int i = 0; i < maxScores.length; i++) {
+			maxScores[i] = Float.NEGATIVE_INFINITY;
+			maxScoreOffsets[i] = -1;
+		}
+		if (!scan) { return; }
+		
+		// iteration over the Matrix in lexicographic order, the running dimensions start at 1
+		int[] start = new int[dimensions];
+		for (int i = 0; i < dimensions; i++) {
+			start[i] = (keptMask & (1 << i)) != 0 ? 0 : 1;
+			if (start[i] >= matrix.getLength(i)) { return; }						// no entries to project
+		}
+		int[] indices = start.clone();
+		long offset = matrix.getOffset(indices);
+		int projectionOffset = 0;
+		while (true) {
+			float score = matrix.get(offset);
+			if (score > maxScores[projectionOffset]) {								// the first max score
+				maxScores[projectionOffset] = score;
+				maxScoreOffsets[projectionOffset] = offset;
+			}
+			
+			// iteration logic
+			int i = dimensions-1;
+			for (; i >= 0; i--) {
+				indices[i]++;
+				offset += matrix.getStride(i);
+				projectionOffset += strides[i];
+				if (indices[i] < matrix.getLength(i)) { break; }
+				offset -= matrix.getStride(i) * (indices[i] - start[i]);
+				projectionOffset -= strides[i] * (indices[i] - start[i]);
+				indices[i] = start[i];
+			}
+			if (i < 0) { break; }													// iteration complete?
+		}
+	}
+	
+	/**
+	 * adds the final score of an entry of the Matrix, the entries may be added in any order
+	 * (the first max score in lexicographic order is the one with the smallest offset)
+	 * @param score - the score of the entry
+	 * @param offset - the flat Matrix offset of the entry
+	 * @param indices - the indices of the entry (the entries with a running index 0 are not taken into account)
+	 */
+	public void add(float score, long offset, IndexVector indices) {
+		long projectionOffset = 0;
+		for (int i = 0; i < indices.length(); i++) {
+			if (strides[i] == 0 && indices.get(i) == 0) { return; }					// running dimensions (stride 0) start at 1
+			projectionOffset += strides[i] * indices.get(i);
+		}
+		int p = (int) projectionOffset;
+		if (score > maxScores[p] || (score == maxScores[p] && maxScoreOffsets[p] >= 0 && offset < maxScoreOffsets[p])) {
+			maxScores[p] = score;
+			maxScoreOffsets[p] = offset;
+		}
+	}
+	
+	/**
+	 * @param indices - the indices of an entry of the Matrix
+	 * @return the offset of the kept position of the entry in this projection
+	 */
+	public int getOffsetOf(int[] indices) {
+		long offset = 0;
+		for (int i = 0; i < indices.length; i++) {
+			offset += strides[i] * indices[i];
+		}
+		return (int) offset;
+	}
+	
+	/**
+	 * @param keptIndices - the indices of the kept dimensions (in ascending dimension order)
+	 * @return the offset of the kept position in this projection
+	 */
+	public int getOffset(int[] keptIndices) {
+		long offset = 0;
+		for (int i = 0; i < keptIndices.length; i++) {
+			offset += strides[keptDimensions[i]] * keptIndices[i];
+		}
+		return (int) offset;
+	}
+	
+	/** @return the stride of the given Matrix dimension in this projection (0 if the dimension is running) */
+	public long getStride(int dimension) {
+		return strides[dimension];
+	}
+	
+	/** @return the max score of the Matrix at the given kept position (see getOffset) */
+	public float getMaxScore(int offset) {
+		return maxScores[offset];
+	}
+	
+	/** @return the flat Matrix offset of the first max score at the given kept position (see getOffset), -1 if there is no score greater than -infinity */
+	public long getMaxScoreOffset(int offset) {
+		return maxScoreOffsets[offset];
+	}
+	
+}
@@ -1,7 +1,5 @@
 package model;
 
-import java.util.HashMap;
-
 import controller.Scorer;
 
 /**
@@ -12,45 +10,70 @@ public class Scoring {
   // object defenition
 	/** the used characters */
 	char[] chars;
-	/** the scoring matrix */
-	HashMap<Character, HashMap<Character, Float>> scoring;
-	
+	/** maps a char to its index in chars (-1 if the char is not contained) */
+	int[] indices;
+	/** the flat scoring matrix (chars.length x chars.length), scores[i * chars.length + j] is the score of chars[i] and chars[j] */
+	float[] scores;
+
 	public Scoring(char[] chars, float[][] scores) {
-		this.chars = chars;
-		this.scoring = new HashMap<>();
-		for (int i = 0; i < chars.length; i++) {
-			this.scoring.put(chars[i], new HashMap<>());
-			for (int j = 0; j < chars.length; j++) {
-				this.scoring.get(chars[i]).put(chars[j], scores[i][j]);
+		Scorer.getInstance();
+		boolean containsGap = false;
+		for (char c : chars) {
+			if (c == Scorer.GAP_CHAR) {
+				containsGap = true;
 			}
 		}
-		Scorer.getInstance();
-		if (!this.contains(Scorer.GAP_CHAR)) {
-			this.scoring.put(Scorer.GAP_CHAR, new HashMap<>());
-			this.scoring.get(Scorer.GAP_CHAR).put(Scorer.GAP_CHAR, 0f);		// gap-gap is bad
+
+		if (containsGap) {
+			this.chars = chars;
+		} else {													// add a gap row and column using the default gap score
+			this.chars = new char[chars.length+1];
 			for (int i = 0; i < chars.length; i++) {
-				this.scoring.get(Scorer.GAP_CHAR).put(chars[i], Scorer.scoreGap);
-				this.scoring.get(chars[i]).put(Scorer.GAP_CHAR, Scorer.scoreGap);
+				this.chars[i] = chars[i];
 			}
-			this.chars = new char[chars.length+1];
 			this.chars[chars.length] = Scorer.GAP_CHAR;
+		}
+
+		int maxChar = 0;
+		for (char c : this.chars) {
+			maxChar = Math.max(maxChar, c);
+		}
+		this.indices = new int[maxChar+1];
+		for (int i = 0; i < this.indices.length; i++) {
+			this.indices[i] = -1;
+		}
+		for (int i = 0; i < this.chars.length; i++) {
+			this.indices[this.chars[i]] = i;
+		}
+
+		int length = this.chars.length;
+		this.scores = new float[length * length];
+		for (int i = 0; i < chars.length; i++) {
+			for (int j = 0; j < chars.length; j++) {
+				this.scores[this.indices[chars[i]] * length + this.indices[chars[j]]] = scores[i][j];
+			}
+		}
+		if (!containsGap) {
+			int gapIndex = this.indices[Scorer.GAP_CHAR];
+			this.scores[gapIndex * length + gapIndex] = 0f;					// gap-gap is bad
 			for (int i = 0; i < chars.length; i++) {
-				this.chars[i] = chars[i];
+				this.scores[gapIndex * length + i] = Scorer.scoreGap;
+				this.scores[i * length + gapIndex] = Scorer.scoreGap;
 			}
 		}
 	}
-	
+
 	public boolean contains(char c) {
-		for (char containedC : chars) {
-			if (c == containedC) {
-				return true;
-			}
-		}
-		return false;
+		return c < indices.length && indices[c] >= 0;
 	}
-	
+
 	public float getScore(char c1, char c2) {
-		return this.scoring.get(c1).get(c2);
+		return this.scores[indices[c1] * chars.length + indices[c2]];
+	}
+
+	/** @return the used characters (including the gap) */
+	public char[] getChars() {
+		return chars;
 	}
 	
 	@Override
@@ -65,7 +88,7 @@ public class Scoring {
 		for (int i = 0; i < this.chars.length; i++) {
 			s += chars[i] + "\t";
 			for (int j = 0; j < this.chars.length; j++) {
-				s += this.scoring.get(this.chars[i]).get(this.chars[j]) + "\t";
+				s += this.scores[i * chars.length + j] + "\t";
 			}
 			s += "\n";
 		}
@@ -1,5 +1,7 @@
 package model;
 
+import controller.Scorer;
+
 /**
  * the Sequence Class is to store and handle char-Sequences
  * @author falco
@@ -8,8 +10,12 @@ public class Sequence {
   // object definition
 	/** the name of this sequence */
 	private String name;
-	/** the sequence */
+	/** the sequence (null once it is encoded, the chars are decoded from the codes) */
 	private char[] sequence;
+	/** the sequence encoded as alphabet codes of the compiled score table (null if not encoded yet) */
+	private byte[] codes;
+	/** the alphabet the codes refer to (alphabet[code] is the char, kept if the score table is compiled again) */
+	private char[] alphabet;
 	/** true if this sequence is left global */
 	private boolean globalLeft;
 	/** true if this sequence is right global */
@@ -58,26 +64,78 @@ public class Sequence {
 		return stringBuilder.toString();
 	}
 	
+	/** @return the chars of this sequence (decoded if it is encoded) */
 	public char[] toCharArray() {
-		return sequence;
+		if (sequence != null) {
+			return sequence;
+		}
+		char[] chars = new char[codes.length];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = alphabet[codes[i]];
+		}
+		return chars;
 	}
 
 	/** @return the char at the given position */
 	public char get(int i){
-		return sequence[i];
+		return sequence != null ? sequence[i] : alphabet[codes[i]];
 	}
 	
 	/** sets the char at position i to c*/
 	public void set(char c, int i){
+		if (sequence == null) {
+			sequence = toCharArray();											// c may not be part of the alphabet
+		}
 		sequence[i] = c;
+		if (codes != null) {
+			codes[i] = Scorer.getInstance().encode(c);
+		}
+	}
+	
+	/**
+	 * encodes this sequence using the alphabet of the compiled score table (see Scorer.compile),
+	 * the chars are dropped if every char is part of the alphabet (they are decoded from the codes)
+	 */
+	public void encode() {
+		char[] chars = toCharArray();
+		codes = new byte[chars.length];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = Scorer.getInstance().encode(chars[i]);
+		}
+		alphabet = Scorer.getInstance().getAlphabet();
+		sequence = isEncoded() ? null : chars;
+	}
+	
+	/** @return true if this sequence is encoded and every char is part of the compiled alphabet */
+	public boolean isEncoded() {
+		if (codes == null) {
+			return false;
+		}
+		for (byte code : codes) {
+			if (code < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/** @return the alphabet code at the given position */
+	public byte getCode(int i){
+		return codes[i];
+	}
+	
+	public byte[] toCodeArray() {
+		return codes;
 	}
 	
 	public int getLength(){
-		return sequence.length;
+		return sequence != null ? sequence.length : codes.length;
 	}
 
 	public void setSequence(char[] sequence) {
 		this.sequence = sequence;
+		this.codes = null;
+		this.alphabet = null;
 	}
 
 	public boolean isGlobalLeft() {
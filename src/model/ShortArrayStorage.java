@@ -0,0 +1,42 @@
+package model;
+
+/**
+ * stores the values of a Matrix as fixed-point integers in a short array (used by the integer scoring if the score range allows it)
+ * every value has to be an integer within the short range, so storing and reading them is exact
+ * @author Falco
+ */
+public class ShortArrayStorage implements FloatStorage {
+  // object definition
+	/** the values */
+	private short[] values;
+	
+	public ShortArrayStorage(int length) {
+		this.values = new short[length];
+	}
+	
+	/** @return the values (the cells of a Matrix are read and written directly by its passes) */
+	public short[] getValues() {
+		return values;
+	}
+	
+	@Override
+	public float get(long index) {
+		return values[(int) index];
+	}
+	
+	@Override
+	public void set(float value, long index) {
+		values[(int) index] = (short) Math.round(value);
+	}
+	
+	@Override
+	public long getLength() {
+		return values.length;
+	}
+	
+	@Override
+	public void free() {
+		values = null;
+	}
+	
+}
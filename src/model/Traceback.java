@@ -0,0 +1,103 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A Traceback stores the backtrack step of every cell of a score Matrix, as it is found while the Matrix is filled:
+ * the PI-Pattern mask of the predecessor in the same Matrix the max score of the cell was taken from (bit i set: sequence i contributes a residue),
+ * or the index of the previous State the backtrack switches to if the max score was taken from a transition.
+ * The backtrack follows the steps without comparing scores.
+ * The steps are packed into ceil(log2(2^n + previous States)) bits per cell (a cell may span two words).
+ * @author Falco
+ */
+public class Traceback {
+  // static definition
+	/** the maximal number of sequences */
+	public static final int MAX_SEQUENCES = 7;
+	/** the step of a cell which was not recorded (the backtrack has to search) */
+	public static final int UNKNOWN = -1;
+	/** the step of a cell whose max score was taken from a previous State (the backtrack switches to it, see getPreviousIndex) */
+	public static final int SWITCH = 0;
+	/** sets the bits of a cell atomically, the cells of a word may be recorded by different threads (every cell is recorded once) */
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  // object definition
+	/** the packed steps by flat offset (0: unknown, the mask, or 2^n + the index of the previous State for a switch) */
+	private long[] words;
+	/** the bits per cell */
+	private int bits;
+	/** the mask of the bits of a cell */
+	private long cellMask;
+	/** the first value of a switch (2^n) */
+	private int switchBase;
+
+	/**
+	 * generates a new Traceback with unknown steps
+	 * @param length - the number of cells of the Matrix
+	 * @param dimensions - the number of sequences of the Matrix
+	 * @param previousCount - the number of previous States of the State
+	 */
+	public Traceback(long length, int dimensions, int previousCount) {
+		this.switchBase = 1 << dimensions;
+		this.bits = Math.max(1, 64 - Long.numberOfLeadingZeros(switchBase + previousCount -1));
+		this.cellMask = (1L << bits) -1;
+		long wordCount = (length * bits + 63) >>> 6;
+		if (wordCount > Integer.MAX_VALUE) {
+			throw new java.lang.Error("a Traceback can not store " + length + " cells");
+		}
+		this.words = new long[(int) wordCount];
+	}
+
+	/**
+	 * records the step of a cell
+	 * @param offset - the flat offset of the cell
+	 * @param mask - the PI-Pattern mask of the predecessor
+	 */
+	public void set(long offset, int mask) {
+		put(offset, mask);
+	}
+
+	/**
+	 * records a switch to a previous State
+	 * @param offset - the flat offset of the cell
+	 * @param previousIndex - the index of the previous State (in State.getPrevious())
+	 */
+	public void setSwitch(long offset, int previousIndex) {
+		put(offset, switchBase + previousIndex);
+	}
+
+	/** @return the PI-Pattern mask of the predecessor of the cell, SWITCH or UNKNOWN */
+	public int get(long offset) {
+		int value = read(offset);
+		return value >= switchBase ? SWITCH : value == 0 ? UNKNOWN : value;
+	}
+
+	/** @return the index of the previous State the backtrack switches to from the cell (its step is SWITCH) */
+	public int getPreviousIndex(long offset) {
+		return read(offset) - switchBase;
+	}
+
+	/** ors the value into the (zero) bits of the cell */
+	private void put(long offset, long value) {
+		long bit = offset * bits;
+		int word = (int) (bit >>> 6);
+		int shift = (int) (bit & 63);
+		WORDS.getAndBitwiseOr(words, word, value << shift);
+		if (shift + bits > 64) {												// the cell spans two words
+			WORDS.getAndBitwiseOr(words, word+1, value >>> (64 - shift));
+		}
+	}
+
+	/** @return the value of the cell */
+	private int read(long offset) {
+		long bit = offset * bits;
+		int word = (int) (bit >>> 6);
+		int shift = (int) (bit & 63);
+		long value = words[word] >>> shift;
+		if (shift + bits > 64) {
+			value |= words[word+1] << (64 - shift);
+		}
+		return (int) (value & cellMask);
+	}
+}
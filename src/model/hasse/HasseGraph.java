@@ -1,6 +1,8 @@
 package model.hasse;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 
 import io.Writer;
 import model.Sequence;
@@ -17,6 +19,10 @@ public class HasseGraph {
 	private State initialState;
 	/** stores ALL the sequences of the Alignment in an ordered Array */
 	private Sequence[] sequences;
+	/** the states indexed by their (active, done) signature (see getOrCreateStateByActiveSequences) */
+	private HashMap<Signature, ArrayList<State>> statesBySignature;
+	/** the number of states when the index was built */
+	private int indexedStatesCount;
 	
 	/** genereates a new HasseGraph with the given parameters*/
 	public HasseGraph(ArrayList<State> states, State initialState, Sequence[] sequences) {
@@ -54,15 +60,97 @@ public class HasseGraph {
 		return s;
 	}
 	
-	/** @return the final State with the best (maximal) score (could be used for backtracking) */
+	/**
+	 * frees the score matrices of all the States (releases off-heap memory at once)
+	 * the matrices and scores of the States must not be used afterwards
+	 */
+	public void freeScoreMatrices() {
+		for (State state : states) {
+			if (state.getScoreMatrix() != null) {
+				state.getScoreMatrix().free();
+			}
+		}
+	}
+	
+	/**
+	 * removes the States which are not co-reachable from a final State (no path leads from them to a final State)
+	 * the remaining States are never following such a State, so the plane States of every remaining State stay in the graph
+	 * @return the number of removed States
+	 */
+	public int removeNonCoReachableStates() {
+		HashSet<State> coReachable = new HashSet<>();
+		for (State state : states) {
+			if (state.isFinalState()) {
+				coReachable.add(state);
+				coReachable.addAll(state.getPrevious());									// the previous states are transitive
+			}
+		}
+		if (coReachable.size() == states.size()) {
+			return 0;
+		}
+		ArrayList<State> remaining = new ArrayList<>();
+		ArrayList<State> removed = new ArrayList<>();
+		for (State state : states) {
+			(coReachable.contains(state) ? remaining : removed).add(state);
+		}
+		for (State state : removed) {
+			for (State connected : new ArrayList<>(state.getPrevious())) {
+				state.disconnect(connected);
+			}
+		}
+		setStates(remaining);
+		return removed.size();
+	}
+	
+	/**
+	 * marks the States as pruned, which can not be passed by an alignment scoring at least the lowerBound.
+	 * an alignment scores the sum of the projected pairwise alignments of its sequences, a pair contributes while both of its sequences are active.
+	 * if one of them is done and the other one is ready in a State, they are never active together in an alignment passing this State,
+	 * otherwise the pair contributes at most its best pairwise score. (requires gap-gap scores <= 0, since the projection drops gap-only columns)
+	 * the pruned States stay in the graph (their previous States may still reach the following States directly)
+	 * @param pairwiseScores - the best score of every pair of sequences over all the cells of its pairwise alignment
+	 * @param lowerBound - the score of a known alignment (the optimal score must not be lower)
+	 * @return the number of pruned States
+	 */
+	public int pruneByBound(float[][] pairwiseScores, float lowerBound) {
+		int prunedCount = 0;
+		for (State state : states) {
+			float upperBound = 0;
+			for (int p = 0; p < sequences.length; p++) {
+				for (int q = p+1; q < sequences.length; q++) {
+					long pair = (1L << p) | (1L << q);
+					boolean disjoint = (state.getReadyMask() & pair) != 0 && (state.getDoneMask() & pair) != 0;		// one ready, one done
+					if (!disjoint) {
+						upperBound += pairwiseScores[p][q];
+					}
+				}
+			}
+			if (upperBound < lowerBound && !state.isInitialState()) {
+				state.setPruned(true);
+				prunedCount++;
+			}
+		}
+		return prunedCount;
+	}
+	
+	/** @return true if a final State is not pruned (an alignment can end in it) */
+	public boolean hasUnprunedFinalState() {
+		for (State state : states) {
+			if (state.isFinalState() && !state.isPruned()) { return true; }
+		}
+		return false;
+	}
+	
+	/** @return the unpruned final State with the best (maximal) score (could be used for backtracking), null if there is none */
 	public State getMaxFinalState() {
-		if (states.size() == 0) { return null; }
-		State maxState = states.get(0);
+		State maxState = null;
+		float maxScore = 0;
 		for (State state : states) {
-			if (state.isFinalState() && (state.getScore(this.sequences) > maxState.getScore(sequences) 
-				|| (state.getScore(this.sequences) == maxState.getScore(sequences) && state.getActive().size() > maxState.getActive().size())
-				)) {
+			if (!state.isFinalState() || state.isPruned()) { continue; }
+			float score = state.getScore(this.sequences);
+			if (maxState == null || score > maxScore || (score == maxScore && state.getActive().size() > maxState.getActive().size())) {
 				maxState = state;
+				maxScore = score;
 			}
 		}
 		return maxState;
@@ -70,49 +158,31 @@ public class HasseGraph {
 	
 	/**
 	 * looks for a state with the active sequences of the given state and creates a new state if none is found
+	 * the states are looked up by a hashed index of their (active, done) signature
 	 * @param fullState - the given state
 	 * @param indicesToCount - the indices to take into account
 	 * @return a state with the active sequences of the given state
 	 */
 	public State getOrCreateStateByActiveSequences(State fullState, int[] indicesToCount) {
 		int[] sequenceIndices = new int[indicesToCount.length];
+		long activeMask = 0;
 		for (int i = 0; i < sequenceIndices.length; i++) {
 			sequenceIndices[i] = fullState.getActive().get(indicesToCount[i]);				// mapping indicesToUse to SequenceIndex
+			activeMask |= 1L << sequenceIndices[i];
 		}
 		
-		for (State state : states) {
-			if (state.getActive().size() != sequenceIndices.length) { continue; } 			// same indices ==> same lengths
-			boolean containsEveryIndex = true;
-			for (int index : sequenceIndices) {												// same legths ==> one way check is enough
-				if (!state.getActive().contains(index)) {
-					containsEveryIndex = false;
-					break;
-				}
-			}
-			if (containsEveryIndex && state.getReady().size() >= fullState.getReady().size()) {	// planestate ready can be bigger than fullstate ready since indieces not used are in planestate.ready
-				for (int i = 0; i < fullState.getReady().size(); i++) {							// check for same ready set
+		ArrayList<State> candidates = getStatesBySignature().get(new Signature(activeMask, fullState.getDoneMask()));	// same active set and same done set
+		if (candidates != null) {
+			for (State state : candidates) {												// in the order of the states
+				boolean containsEveryIndex = state.getReady().size() >= fullState.getReady().size();	// planestate ready can be bigger than fullstate ready since indieces not used are in planestate.ready
+				for (int i = 0; containsEveryIndex && i < fullState.getReady().size(); i++) {		// check for same ready set
 					if ((int) state.getReady().get(i) != (int) fullState.getReady().get(i)) {
 						containsEveryIndex = false;
-						break;
 					}
+				}																				// no need to check if non-used active sequences are in planestate.ready, because they cant be anywhere else
+				if (containsEveryIndex) {
+					return state;
 				}
-				if (containsEveryIndex && state.getDone().size() == fullState.getDone().size()) {
-					for (int i = 0; i < fullState.getDone().size(); i++) {						// check for same done set
-						if ((int) state.getDone().get(i) != (int) fullState.getDone().get(i)) {
-							containsEveryIndex = false;
-							break;
-						}
-					}																			// no need to check if non-used active sequences are in planestate.ready, because they cant be anywhere else
-				} else {
-					containsEveryIndex = false;
-				}
-			} else {
-				containsEveryIndex = false;
-			}
-			
-			if (containsEveryIndex) {
-				//System.out.println("OLD");
-				return state;
 			}
 		}
 		State state = new State(new ArrayList<Integer>(), new ArrayList<Integer>(), new ArrayList<Integer>(), false, false);
@@ -122,6 +192,42 @@ public class HasseGraph {
 		//System.out.println("NEW");
 		return state;
 	}
+	
+	/** @return the index of the states by their signature (rebuilt if states were added) */
+	private synchronized HashMap<Signature, ArrayList<State>> getStatesBySignature() {
+		if (statesBySignature == null || indexedStatesCount != states.size()) {
+			statesBySignature = new HashMap<>();
+			for (State state : states) {
+				statesBySignature.computeIfAbsent(new Signature(state.getActiveMask(), state.getDoneMask()), signature -> new ArrayList<>()).add(state);
+			}
+			indexedStatesCount = states.size();
+		}
+		return statesBySignature;
+	}
+	
+	/** the (active, done) signature of a state as bitmasks */
+	private static final class Signature {
+		private final long activeMask, doneMask;
+		
+		private Signature(long activeMask, long doneMask) {
+			this.activeMask = activeMask;
+			this.doneMask = doneMask;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Signature)) {
+				return false;
+			}
+			Signature signature = (Signature) obj;
+			return signature.activeMask == activeMask && signature.doneMask == doneMask;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Long.hashCode(activeMask * 31 + doneMask);
+		}
+	}
 
 	public ArrayList<State> getStates() {
 		return states;
@@ -129,6 +235,7 @@ public class HasseGraph {
 
 	public void setStates(ArrayList<State> states) {
 		this.states = states;
+		this.statesBySignature = null;
 	}
 
 	public State getInitialState() {
@@ -0,0 +1,277 @@
+package model.hasse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import model.Sequence;
+
+/**
+ * The Lattice Class enumerates the States of a HasseGraph in closed form from the localities of the Sequences.
+ * Every Sequence runs through the states ready (0), active (1) and done (2): it starts active if it is global left and
+ * it can not be finished if it is global right. Every combination of these per Sequence states is a valid State, and a State
+ * is previous to another one if no Sequence is in a later state. So the lattice is a product of chains and its direct edges
+ * (the transitive reduction) advance exactly one Sequence by exactly one state.
+ * The States are indexed in topological order (by rank, the number of steps from the initial State), the edges are kept
+ * in int-indexed adjacency arrays, so the lattice is cheap enough to be generated up front (e.g. to plan costs).
+ * @author Falco
+ */
+public class Lattice {
+  // object definition
+	/** the Sequences of the Alignment */
+	private Sequence[] sequences;
+	/** the first state (0: ready, 1: active, 2: done) of every Sequence */
+	private int[] minLevels;
+	/** the number of states every Sequence can be in (the radix of its digit in the state codes) */
+	private int[] radices;
+	/** the weight of the digit of every Sequence in the state codes (mixed radix) */
+	private int[] weights;
+	/** the state code of every State index */
+	private int[] codes;
+	/** the State index of every state code */
+	private int[] indices;
+	/** the ready, active and done bitmasks of every State */
+	private long[] readyMasks, activeMasks, doneMasks;
+	/** the rank of every State (ascending) */
+	private int[] ranks;
+	/** the indices of the directly previous and directly following States of every State (ascending) */
+	private int[][] directlyPrevious, directlyFollowing;
+	/** true if a State is final */
+	private boolean[] finalStates;
+
+	/**
+	 * generates the lattice of the given Sequences
+	 * @param sequences - the Sequences (with their localities)
+	 */
+	public Lattice(Sequence... sequences) {
+		if (sequences.length > State.MAX_SEQUENCES) {
+			throw new java.lang.Error("a lattice can hold at most " + State.MAX_SEQUENCES + " sequences, but got " + sequences.length);
+		}
+		this.sequences = sequences;
+		this.minLevels = new int[sequences.length];
+		this.radices = new int[sequences.length];
+		this.weights = new int[sequences.length];
+		long statesCount = 1;
+		int maxRank = 0;
+		for (int i = 0; i < sequences.length; i++) {
+			minLevels[i] = sequences[i].isGlobalLeft() ? 1 : 0;					// global left sequences start active
+			int maxLevel = sequences[i].isGlobalRight() ? 1 : 2;					// global right sequences are not finished
+			radices[i] = maxLevel - minLevels[i] + 1;
+			weights[i] = (int) statesCount;
+			statesCount *= radices[i];
+			maxRank += radices[i] - 1;
+			if (statesCount > Integer.MAX_VALUE) {
+				throw new java.lang.Error("the lattice of the sequences has more than " + Integer.MAX_VALUE + " states");
+			}
+		}
+		int size = (int) statesCount;
+
+		// counting sort of the state codes by rank => topological order
+		int[] codeRanks = new int[size];
+		int[] rankStarts = new int[maxRank + 2];
+		int[] digits = new int[sequences.length];
+		int rank = 0;
+		for (int code = 0; code < size; code++) {
+			codeRanks[code] = rank;
+			rankStarts[rank + 1]++;
+			for (int i = 0; i < digits.length; i++) {								// next code (odometer), the rank follows the digit sum
+				if (digits[i] < radices[i] - 1) {
+					digits[i]++;
+					rank++;
+					break;
+				}
+				rank -= digits[i];
+				digits[i] = 0;
+			}
+		}
+		for (int r = 1; r < rankStarts.length; r++) {
+			rankStarts[r] += rankStarts[r - 1];
+		}
+		this.codes = new int[size];
+		this.indices = new int[size];
+		this.ranks = new int[size];
+		for (int code = 0; code < size; code++) {
+			int index = rankStarts[codeRanks[code]]++;
+			codes[index] = code;
+			indices[code] = index;
+			ranks[index] = codeRanks[code];
+		}
+
+		// the sets and the edges of every state
+		boolean thereIsAtLeastOneGlobalRightSequence = false;
+		long globalRightMask = 0;
+		for (int i = 0; i < sequences.length; i++) {
+			if (sequences[i].isGlobalRight()) {
+				thereIsAtLeastOneGlobalRightSequence = true;
+				globalRightMask |= 1L << i;
+			}
+		}
+		this.readyMasks = new long[size];
+		this.activeMasks = new long[size];
+		this.doneMasks = new long[size];
+		this.directlyPrevious = new int[size][];
+		this.directlyFollowing = new int[size][];
+		this.finalStates = new boolean[size];
+		int[] previousBuffer = new int[sequences.length];
+		int[] followingBuffer = new int[sequences.length];
+		for (int index = 0; index < size; index++) {
+			int code = codes[index];
+			int previousCount = 0, followingCount = 0;
+			for (int i = 0; i < sequences.length; i++) {
+				int digit = (code / weights[i]) % radices[i];
+				int level = minLevels[i] + digit;
+				if (level == 0) { readyMasks[index] |= 1L << i; }
+				else if (level == 1) { activeMasks[index] |= 1L << i; }
+				else { doneMasks[index] |= 1L << i; }
+				if (digit > 0) { previousBuffer[previousCount++] = indices[code - weights[i]]; }
+				if (digit < radices[i] - 1) { followingBuffer[followingCount++] = indices[code + weights[i]]; }
+			}
+			directlyPrevious[index] = sortedCopy(previousBuffer, previousCount);
+			directlyFollowing[index] = sortedCopy(followingBuffer, followingCount);
+			finalStates[index] = !thereIsAtLeastOneGlobalRightSequence 				// the same final states as Aligner.markFinalStates
+					|| (activeMasks[index] == globalRightMask && readyMasks[index] == 0);
+		}
+	}
+
+	/** @return a sorted copy of the first count values */
+	private static int[] sortedCopy(int[] values, int count) {
+		int[] copy = Arrays.copyOf(values, count);
+		Arrays.sort(copy);
+		return copy;
+	}
+
+	/** @return a String representation of this object */
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		s.append("lattice: ").append(size()).append(" states, ranks 0 - ").append(ranks[size() - 1]).append("\n");
+		for (int index = 0; index < size(); index++) {
+			s.append(index).append(": ").append(getShortString(index)).append("  \t directly previous: ").append(Arrays.toString(directlyPrevious[index])).append("\n");
+		}
+		return s.toString();
+	}
+
+	/** @return a short String representation of the State with the given index (as State.toShortString) */
+	public String getShortString(int index) {
+		String s = "(";
+		if (index == 0) { s += "I "; }
+		if (finalStates[index]) { s += "F "; }
+		return s + getIndicesString(readyMasks[index]) + ", " + getIndicesString(activeMasks[index]) + ", " + getIndicesString(doneMasks[index]) + ")";
+	}
+
+	/** @return the indices of the given mask as String */
+	private static String getIndicesString(long mask) {
+		String s = "{";
+		for (long rest = mask; rest != 0; rest &= rest - 1) {
+			s += Long.numberOfTrailingZeros(rest);
+			if ((rest & (rest - 1)) != 0) { s += ","; }
+		}
+		return s + "}";
+	}
+
+	/** @return true if the State previousIndex is a (transitively) previous State of followingIndex */
+	public boolean isPrevious(int previousIndex, int followingIndex) {
+		if (previousIndex == followingIndex) { return false; }
+		return (doneMasks[previousIndex] & ~doneMasks[followingIndex]) == 0							// no done -> active/ready changes
+				&& (readyMasks[followingIndex] & ~readyMasks[previousIndex]) == 0;					// no active/done -> ready changes
+	}
+
+	/**
+	 * returns the indices of all the (transitively) previous States of a State by enumerating its lower box of state codes
+	 * @return the indices in ascending (topological) order
+	 */
+	public int[] getPrevious(int index) {
+		int code = codes[index];
+		int count = 1;
+		for (int i = 0; i < radices.length; i++) {
+			count *= (code / weights[i]) % radices[i] + 1;
+		}
+		int[] previous = new int[count - 1];
+		int[] digits = new int[radices.length];
+		int previousCode = 0;
+		for (int n = 0; n < count - 1; n++) {
+			previous[n] = indices[previousCode];
+			for (int i = 0; i < digits.length; i++) {								// next code below code (odometer)
+				if (digits[i] < (code / weights[i]) % radices[i]) {
+					digits[i]++;
+					previousCode += weights[i];
+					break;
+				}
+				previousCode -= digits[i] * weights[i];
+				digits[i] = 0;
+			}
+		}
+		Arrays.sort(previous);
+		return previous;
+	}
+
+	/**
+	 * builds the HasseGraph of this lattice; the States are ordered topologically and their previous and following lists as well
+	 * @return the HasseGraph
+	 */
+	public HasseGraph toHasseGraph() {
+		ArrayList<State> states = new ArrayList<>(size());
+		for (int index = 0; index < size(); index++) {
+			State state = new State();
+			for (int i = 0; i < sequences.length; i++) {
+				long bit = 1L << i;
+				if ((readyMasks[index] & bit) != 0) { state.addToReady(i); }
+				else if ((activeMasks[index] & bit) != 0) { state.addToActive(i); }
+				else { state.addToDone(i); }
+			}
+			state.setInitialState(index == 0);
+			state.setFinalState(finalStates[index]);
+			states.add(state);
+		}
+		for (int index = 0; index < size(); index++) {
+			State state = states.get(index);
+			for (int previousIndex : getPrevious(index)) {
+				state.addPreviousState(states.get(previousIndex));
+				states.get(previousIndex).addFollowingState(state);
+			}
+			for (int previousIndex : directlyPrevious[index]) {
+				state.addDirectlyPreviousState(states.get(previousIndex));
+				states.get(previousIndex).addDirectlyFollowingState(state);
+			}
+		}
+		return new HasseGraph(states, states.get(0), sequences);
+	}
+
+	/** @return the number of States */
+	public int size() {
+		return codes.length;
+	}
+
+	public long getReadyMask(int index) {
+		return readyMasks[index];
+	}
+
+	public long getActiveMask(int index) {
+		return activeMasks[index];
+	}
+
+	public long getDoneMask(int index) {
+		return doneMasks[index];
+	}
+
+	public int getRank(int index) {
+		return ranks[index];
+	}
+
+	public boolean isFinalState(int index) {
+		return finalStates[index];
+	}
+
+	/** @return the indices of the directly previous States (ascending) */
+	public int[] getDirectlyPrevious(int index) {
+		return directlyPrevious[index];
+	}
+
+	/** @return the indices of the directly following States (ascending) */
+	public int[] getDirectlyFollowing(int index) {
+		return directlyFollowing[index];
+	}
+
+	public Sequence[] getSequences() {
+		return sequences;
+	}
+}
@@ -2,6 +2,8 @@ package model.hasse;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 
 import model.IndexVector;
 import model.Matrix;
@@ -10,10 +12,14 @@ import model.Sequence;
 /**
  * The State Class serves of states containing lists of ready, active and done sequences.
  * It also contains a static method to connect two states.
+ * The sets are mirrored in bitmasks (bit i is set if sequence i is contained), so states are compared, hashed and connected in O(1).
  * @author falco
  */
 public class State {
   // static definition
+	/** the maximal number of sequences a state can hold (bits of the masks) */
+	public static final int MAX_SEQUENCES = Long.SIZE;
+	
 	/** connects the previousState to the followingState and vice versa, if its a valid connection in terms of State changes of the Sequences */
 	public static void connect(State previousState, State followingState) {
 		// fast check (necessary)
@@ -24,37 +30,23 @@ public class State {
 		}
 		// check (sufficient)
 		// check for invalid done -> active/ready changes
-		for (Integer prevDoneIndex : previousState.done) {
-			if (followingState.active.contains(prevDoneIndex) || followingState.ready.contains(prevDoneIndex)) {
-				return;
-			}
+		if ((previousState.doneMask & (followingState.activeMask | followingState.readyMask)) != 0) {
+			return;
 		}
 		// check for invalid active -> ready changes 
-		for (Integer prevActiveIndex : previousState.active) {
-			if (followingState.ready.contains(prevActiveIndex)) {
-				return;
-			}
+		if ((previousState.activeMask & followingState.readyMask) != 0) {
+			return;
 		}
 		// ==> valid connection
 		previousState.addFollowingState(followingState);
 		followingState.addPreviousState(previousState);
 		
 		// check immediate connection
-		int changesCount = 0;
-		for (Integer prevReadyIndex : previousState.ready) {
-			if (!followingState.ready.contains(prevReadyIndex)) {
-				if (followingState.done.contains(prevReadyIndex)) {
-					return;		// change from ready to done => 2 changes
-				}
-				changesCount++;
-			}
-		}
-		
-		for (Integer prevActiveIndex : previousState.active) {
-			if (!followingState.active.contains(prevActiveIndex)) {
-				changesCount++;
-			}
+		long leftReady = previousState.readyMask & ~followingState.readyMask;
+		if ((leftReady & followingState.doneMask) != 0) {
+			return;		// change from ready to done => 2 changes
 		}
+		int changesCount = Long.bitCount(leftReady) + Long.bitCount(previousState.activeMask & ~followingState.activeMask);
 		
 		if (changesCount == 1) {
 			previousState.addDirectlyFollowingState(followingState);
@@ -66,11 +58,19 @@ public class State {
 	
   // object definition
 	private ArrayList<Integer> ready, active, done;
+	/** the ready, active and done sets as bitmasks (kept in sync with the lists) */
+	private long readyMask, activeMask, doneMask;
 	private ArrayList<State> previous, following, directlyPrevios, directlyFollowing;
+	/** the connected states as hash sets to check for doubled connections in O(1) */
+	private HashSet<State> previousSet, followingSet, directlyPreviousSet, directlyFollowingSet;
 	private boolean initialState, finalState;
 	private Matrix scoreMatrix;
 	private IndexVector maxScoreIndices;
 	private Boolean fullyRightLocal;
+	/** true if no optimal alignment can pass this state, so its matrix is not computed (see HasseGraph.prune) */
+	private boolean pruned;
+	/** the compiled transitions from the previous states (see getTransition) */
+	private IdentityHashMap<State, Transition> transitions = new IdentityHashMap<>();
 	
 	
 	/** genereates a new empty state */
@@ -82,6 +82,10 @@ public class State {
 		this.following = new ArrayList<>();
 		this.directlyPrevios = new ArrayList<>();
 		this.directlyFollowing = new ArrayList<>();
+		this.previousSet = new HashSet<>();
+		this.followingSet = new HashSet<>();
+		this.directlyPreviousSet = new HashSet<>();
+		this.directlyFollowingSet = new HashSet<>();
 		this.initialState = false;
 		this.finalState = false;
 	}
@@ -92,6 +96,9 @@ public class State {
 		this.ready = ready;
 		this.active = active;
 		this.done = done;
+		this.readyMask = getMask(ready);
+		this.activeMask = getMask(active);
+		this.doneMask = getMask(done);
 		this.initialState = initialState;
 		this.finalState = finalState;
 	}
@@ -102,14 +109,38 @@ public class State {
 		this.ready = ready;
 		this.active = active;
 		this.done = done;
+		this.readyMask = getMask(ready);
+		this.activeMask = getMask(active);
+		this.doneMask = getMask(done);
 		this.previous = previous;
 		this.following = following;
 		this.directlyPrevios = directlyPrevios;
 		this.directlyFollowing = directlyFollowing;
+		this.previousSet.addAll(previous);
+		this.followingSet.addAll(following);
+		this.directlyPreviousSet.addAll(directlyPrevios);
+		this.directlyFollowingSet.addAll(directlyFollowing);
 		this.initialState = initialState;
 		this.finalState = finalState;
 	}
 	
+	/** @return the bitmask of the given sequence indices */
+	private static long getMask(ArrayList<Integer> indices) {
+		long mask = 0;
+		for (int i : indices) {
+			mask |= getBit(i);
+		}
+		return mask;
+	}
+	
+	/** @return the bit of the given sequence index */
+	private static long getBit(int i) {
+		if (i < 0 || i >= MAX_SEQUENCES) {
+			throw new java.lang.Error("a state can hold at most " + MAX_SEQUENCES + " sequences, but got index " + i);
+		}
+		return 1L << i;
+	}
+	
 	/** @return a String representation of this object */
 	@Override
 	public String toString() {
@@ -184,31 +215,21 @@ public class State {
 		return s;
 	}
 	
+	/** two states are equal if they have the same ready, active and done sets (the lists of generated states are ordered) */
 	@Override
 	public boolean equals(Object obj) {
 		if (!obj.getClass().equals(this.getClass())) {
 			return false;
 		} 
 		State state = (State) obj;
-		if (!(state.getReady().size() == this.getReady().size()) || !(state.getActive().size() == this.getActive().size()) || !(state.getDone().size() == this.getDone().size())) {
-			return false;
-		}
-		for (int i = 0; i < state.getReady().size(); i++) {
-			if ((int) state.getReady().get(i) != (int) this.getReady().get(i)) {
-				return false;
-			}
-		}
-		for (int i = 0; i < state.getActive().size(); i++) {
-			if ((int) state.getActive().get(i) != (int) this.getActive().get(i)) {
-				return false;
-			}
-		}
-		for (int i = 0; i < state.getDone().size(); i++) {
-			if ((int) state.getDone().get(i) != (int) this.getDone().get(i)) {
-				return false;
-			}
-		}
-		return true;
+		return state.readyMask == this.readyMask && state.activeMask == this.activeMask && state.doneMask == this.doneMask;
+	}
+	
+	@Override
+	public int hashCode() {
+		long hash = readyMask * 31 + activeMask;
+		hash = hash * 31 + doneMask;
+		return Long.hashCode(hash);
 	}
 	
 	/**
@@ -240,16 +261,12 @@ public class State {
 	 * @return th e corresponding previous state
 	 */
 	public State getPreviousStateWithActiveSequences(int[] indices) {
+		long mask = 0;
+		for (int index : indices) {
+			mask |= getBit(index);
+		}
 		for (State previousState : previous) {
-			if (previousState.getActive().size() != indices.length) { continue; } 		// same indices ==> same lengths
-			boolean containsEveryIndex = true;
-			for (int index : indices) {													// same legths ==> one way check is enough
-				if (!previousState.getActive().contains(index)) {
-					containsEveryIndex = false;
-					break;
-				}
-			}
-			if (containsEveryIndex) {
+			if (previousState.activeMask == mask) {
 				return previousState;
 			}
 		}
@@ -310,9 +327,11 @@ public class State {
 	 * @return true if the Sequence was finished; false otherwise
 	 */
 	public boolean finish(Integer i) {
-		boolean finished = this.active.remove(new Integer(i));
+		boolean finished = this.active.remove(i);
 		if (finished) {
-			this.done.add(new Integer(i));
+			this.done.add(i);
+			this.activeMask &= ~getBit(i);
+			this.doneMask |= getBit(i);
 		}
 		return finished;
 	}
@@ -324,54 +343,71 @@ public class State {
 	 * @return true if the Sequence was activated; false otherwise
 	 */
 	public boolean activate(Integer i) {
-		boolean activeted = this.ready.remove(new Integer(i));
+		boolean activeted = this.ready.remove(i);
 		if (activeted) {
-			this.active.add(new Integer(i));
+			this.active.add(i);
+			this.readyMask &= ~getBit(i);
+			this.activeMask |= getBit(i);
 		}
 		return activeted;
 	}
 	
 	/** adds the given state to the list of previous states of this state */
 	public void addPreviousState(State previousState) {
-		if (!previous.contains(previousState)) {
+		if (previousSet.add(previousState)) {
 			this.previous.add(previousState);	
 		}
 	}
 	
 	/** adds the given state to the list of following states of this state */
 	public void addFollowingState(State followingState) {
-		if (!following.contains(followingState)) {
+		if (followingSet.add(followingState)) {
 			this.following.add(followingState);	
 		}
 	}
 	
 	/** adds the given state to the list of previous states of this state */
 	public void addDirectlyPreviousState(State previousState) {
-		if (!directlyPrevios.contains(previousState)) {
+		if (directlyPreviousSet.add(previousState)) {
 			this.directlyPrevios.add(previousState);	
 		}
 	}
 	
 	/** adds the given state to the list of following states of this state */
 	public void addDirectlyFollowingState(State followingState) {
-		if (!directlyFollowing.contains(followingState)) {
+		if (directlyFollowingSet.add(followingState)) {
 			this.directlyFollowing.add(followingState);	
 		}
 	}
 	
+	/** removes all the connections between this state and the given one (in both directions) */
+	public void disconnect(State state) {
+		if (previousSet.remove(state)) { previous.remove(state); }
+		if (followingSet.remove(state)) { following.remove(state); }
+		if (directlyPreviousSet.remove(state)) { directlyPrevios.remove(state); }
+		if (directlyFollowingSet.remove(state)) { directlyFollowing.remove(state); }
+		if (state.previousSet.remove(this)) { state.previous.remove(this); }
+		if (state.followingSet.remove(this)) { state.following.remove(this); }
+		if (state.directlyPreviousSet.remove(this)) { state.directlyPrevios.remove(this); }
+		if (state.directlyFollowingSet.remove(this)) { state.directlyFollowing.remove(this); }
+	}
+	
 	/** adds the given index of a sequence to the ready set of this state */
 	public void addToReady(Integer i) {
 		this.ready.add(i);
+		this.readyMask |= getBit(i);
 	}
 	
 	/** adds the given index of a sequence to the active set of this state */
 	public void addToActive(Integer i) {
 		this.active.add(i);
+		this.activeMask |= getBit(i);
 	}
 	
 	/** adds the given index of a sequence to the done set of this state */
 	public void addToDone(Integer i) {
 		this.done.add(i);
+		this.doneMask |= getBit(i);
 	}
 	
 	/**
@@ -385,6 +421,25 @@ public class State {
 		return maxScoreIndices;
 	}
 
+	/**
+	 * returns the transition from the given previous state to all the active sequences of this state (compiled once)
+	 * @param previousState - the previous state (its matrix has to be computed)
+	 * @return the transition
+	 */
+	public synchronized Transition getTransition(State previousState) {
+		Transition transition = transitions.get(previousState);
+		if (transition == null) {
+			transition = new Transition(this, previousState, null);
+			transitions.put(previousState, transition);
+		}
+		return transition;
+	}
+	
+	/** drops the compiled transition from the given previous State (its Matrix is released, the transition would keep its max projection) */
+	public synchronized void removeTransition(State previousState) {
+		transitions.remove(previousState);
+	}
+	
 	public ArrayList<Integer> getReady() {
 		return ready;
 	}
@@ -397,6 +452,21 @@ public class State {
 		return done;
 	}
 
+	/** @return the ready set as bitmask */
+	public long getReadyMask() {
+		return readyMask;
+	}
+	
+	/** @return the active set as bitmask */
+	public long getActiveMask() {
+		return activeMask;
+	}
+	
+	/** @return the done set as bitmask */
+	public long getDoneMask() {
+		return doneMask;
+	}
+
 	public ArrayList<State> getPrevious() {
 		return previous;
 	}
@@ -427,6 +497,14 @@ public class State {
 		this.scoreMatrix = scoreMatrix;
 	}
 
+	public boolean isPruned() {
+		return pruned;
+	}
+
+	public void setPruned(boolean pruned) {
+		this.pruned = pruned;
+	}
+
 	public void setInitialState(boolean initialState) {
 		this.initialState = initialState;
 	}
@@ -0,0 +1,152 @@
+package model.hasse;
+
+import java.util.ArrayList;
+
+import model.IndexVector;
+import model.Matrix;
+import model.MaxProjection;
+
+/**
+ * A Transition describes how the cells of (a plane of) a State are reached from the cells of a previous State.
+ * The sequences active in both States (matching) keep their indices, the max over the other (running) sequences of the previous State
+ * is looked up in its max projection. A Transition is compiled once per (State, previous State, plane), so the cells need no index lists.
+ * Candidates are flat offsets in the Matrix of the previous State (-1 if there is no candidate).
+ * @author Falco
+ */
+public class Transition {
+  // object definition
+	/** the previous State */
+	private State previousState;
+	/** the score Matrix of the previous State */
+	private Matrix previousScoreMatrix;
+	/** the positions of the matching sequences in the I-Pattern of the actual (plane) State */
+	private int[] matchingPositions;
+	/** the strides of the matching sequences in the max projection (in the previous Matrix if no sequence is running) */
+	private long[] matchingStrides;
+	/** the max projection over the running sequences (null if no sequence or every sequence is running) */
+	private MaxProjection maxProjection;
+	/** true if no sequence is matching: the candidate is always constantCandidate */
+	private boolean noneMatching;
+	/** the candidate if no sequence is matching */
+	private long constantCandidate = -1;
+	/** the position of each sequence of the actual (plane) State in the previous State (-1 if it is not active there) */
+	private int[] previousPositions;
+	
+	/**
+	 * compiles the transition, the Matrix of the previous State has to be complete
+	 * @param actualState - the actual State
+	 * @param previousState - the previous State
+	 * @param indicesToCount - the plane of the actual State (null: all the active sequences)
+	 */
+	public Transition(State actualState, State previousState, int[] indicesToCount) {
+		this.previousState = previousState;
+		this.previousScoreMatrix = previousState.getScoreMatrix();
+		ArrayList<Integer> previousActive = previousState.getActive();
+		int[] actualActive;
+		if (indicesToCount == null) {
+			actualActive = new int[actualState.getActive().size()];
+			for (int i = 0; i < actualActive.length; i++) {
+				actualActive[i] = actualState.getActive().get(i);
+			}
+		} else {
+			actualActive = new int[indicesToCount.length];								// take only indicesToCount
+			for (int i = 0; i < actualActive.length; i++) {
+				actualActive[i] = actualState.getActive().get(indicesToCount[i]);
+			}
+		}
+		
+		this.previousPositions = new int[actualActive.length];
+		int matchingCount = 0;
+		for (int i = 0; i < actualActive.length; i++) {
+			previousPositions[i] = previousActive.indexOf(actualActive[i]);
+			if (previousPositions[i] >= 0) { matchingCount++; }
+		}
+		this.matchingPositions = new int[matchingCount];
+		for (int i = 0, j = 0; i < actualActive.length; i++) {
+			if (previousPositions[i] >= 0) { matchingPositions[j++] = i; }
+		}
+		
+		int keptMask = 0;																// the matching dimensions of the previous State
+		for (int i = 0; i < previousActive.size(); i++) {
+			for (int index : actualActive) {
+				if (previousActive.get(i) == index) { keptMask |= 1 << i; }
+			}
+		}
+		
+		if (previousActive.size() == 0) {												// nothing to find here
+			this.noneMatching = true;
+		} else if (matchingCount == 0) {												// the best cell of the previous State
+			this.noneMatching = true;
+			IndexVector maxScoreIndices = previousState.getMaxScoreIndices();
+			if (maxScoreIndices != null) {
+				this.constantCandidate = previousScoreMatrix.getOffset(maxScoreIndices.toArray());
+			}
+		} else {
+			if (matchingCount < previousActive.size()) {
+				this.maxProjection = previousScoreMatrix.getMaxProjection(keptMask);
+			}
+			// the j-th matching sequence of the actual State is mapped to the j-th matching sequence of the previous State
+			this.matchingStrides = new long[matchingCount];
+			for (int i = 0, j = 0; i < previousActive.size(); i++) {
+				if ((keptMask & (1 << i)) != 0) {
+					matchingStrides[j++] = maxProjection == null ? previousScoreMatrix.getStride(i) : maxProjection.getStride(i);
+				}
+			}
+		}
+	}
+	
+	/** @return the previous State */
+	public State getPreviousState() {
+		return previousState;
+	}
+	
+	/**
+	 * finds the best cell of the previous State the given cell can be reached from
+	 * @param actualIPattern - the cell of the actual (plane) State
+	 * @return the flat offset of the candidate in the previous Matrix, -1 if there is no candidate (no score greater than -infinity)
+	 */
+	public long getCandidate(IndexVector actualIPattern) {
+		if (noneMatching) {
+			return constantCandidate;
+		}
+		long offset = 0;
+		for (int j = 0; j < matchingPositions.length; j++) {
+			offset += actualIPattern.get(matchingPositions[j]) * matchingStrides[j];
+		}
+		if (maxProjection == null) {													// nothing to run over: the only candidate
+			return previousScoreMatrix.get(offset) > Float.NEGATIVE_INFINITY ? offset : -1;
+		}
+		return maxProjection.getMaxScoreOffset((int) offset);
+	}
+	
+	/** @return the score of the given candidate (see getCandidate) */
+	public float getScore(long candidate) {
+		if (maxProjection != null && previousScoreMatrix.getHyperplaneStorage() != null) {	// the interior cells are not kept, but the max projection holds their scores
+			return maxProjection.getMaxScore(maxProjection.getOffsetOf(previousScoreMatrix.getIndices(candidate)));
+		}
+		return previousScoreMatrix.get(candidate);
+	}
+	
+	/** @return the indices of the given candidate in the previous Matrix (see getCandidate) */
+	public IndexVector getCandidateIndices(long candidate) {
+		return new IndexVector(previousScoreMatrix.getIndices(candidate));
+	}
+	
+	/**
+	 * @param actualIPattern - the cell of the actual State
+	 * @param previousIPattern - the cell of the previous State
+	 * @return the (negative) PI-Pattern between the previous and the actual cell (-1 for sequences not active in the previous State)
+	 */
+	public IndexVector getPiPattern(IndexVector actualIPattern, IndexVector previousIPattern) {
+		IndexVector piPattern = new IndexVector(new int[previousPositions.length]);
+		for (int i = 0; i < previousPositions.length; i++) {
+			if (previousPositions[i] >= 0) {
+				piPattern.set(previousIPattern.get(previousPositions[i]) - actualIPattern.get(i), i);	// subtraction on match
+			} else {
+				piPattern.set(-1, i);														// read one if new sequence is opened, so pipattern is 1 (-1 for negative pipattern)
+			}
+		}
+		return piPattern;
+	}
+	
+}
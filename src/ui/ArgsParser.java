@@ -1,5 +1,7 @@
 package ui;
 
+import java.util.ArrayList;
+
 import controller.Settings;
 import model.Sequence;
 
@@ -21,6 +23,21 @@ public class ArgsParser {
 	
   // object defenition
 	public Sequence[] initWithArgs(String[] args) {
+		ArrayList<String> files = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				if (!parseOption(arg)) {
+					System.out.println("unknown or invalid option: " + arg);
+					printUsage();
+					System.exit(0);
+					return null;
+				}
+			} else {
+				files.add(arg);
+			}
+		}
+		args = files.toArray(new String[files.size()]);
+
 		if (args.length == 1) {
 			return Settings.init(args[0]);
 		} else if (args.length == 2) {
@@ -31,10 +48,131 @@ public class ArgsParser {
 			return Settings.init(args[0], args[1], args[2], args[3]);
 		} else {
 			System.out.println("none or wrong input was given.");
-			System.out.println("usage:\nvaPLA.jar [sequencesFilePath] [localityPath] [scoringFilePath] [codeFilePath]\nvaPLA.jar [sequencesLocalitiesName] [scoringFilePath] [codeFilePath]\nvaPLA.jar [sequencesLocalitiesName] [scoringFilePath]\nvaPLA.jar [sequencesLocalitiesName]\n  EXAMPLE:\n  java -jar vaPLA.jar data/example");
+			printUsage();
 			System.exit(0);
 			return null;
 		}
 	}
 
+	/**
+	 * parses an option of the form --name or --name=value and stores it in the Settings
+	 * @return true if the option is known and valid, false otherwise
+	 */
+	private boolean parseOption(String arg) {
+		String name = arg.substring(2);
+		String value = null;
+		if (name.contains("=")) {
+			value = name.substring(name.indexOf("=")+1);
+			name = name.substring(0, name.indexOf("="));
+		}
+		try {
+			switch (name) {
+			case "integer-scoring":
+				Settings.integerScoring = true;
+				if (value != null) {
+					Settings.scoreScale = Integer.parseInt(value);
+				}
+				return true;
+			case "short-storage":
+				Settings.shortStorage = true;
+				return true;
+			case "off-heap":
+				Settings.offHeapStorage = true;
+				return true;
+			case "scratch-dir":
+				if (value == null || value.isEmpty()) { return false; }
+				Settings.scratchDirectory = value;
+				return true;
+			case "parallelism":
+				if (value == null || Integer.parseInt(value) < 1) { return false; }
+				Settings.parallelism = Integer.parseInt(value);
+				return true;
+			case "wavefront":
+				Settings.wavefront = true;
+				if (value != null) {
+					if (Integer.parseInt(value) < 1) { return false; }
+					Settings.wavefrontGrain = Integer.parseInt(value);
+				}
+				return true;
+			case "tiling":
+				if (value == null) {
+					Settings.tiling = true;
+				} else if (value.equals("on") || value.equals("off") || value.equals("auto")) {
+					Settings.tiling = value.equals("auto") ? null : value.equals("on");
+				} else {
+					return false;
+				}
+				return true;
+			case "tile-length":
+				if (value == null || Integer.parseInt(value) < 1) { return false; }
+				Settings.tileLength = Integer.parseInt(value);
+				return true;
+			case "lattice":
+				Settings.latticeGenerator = true;
+				return true;
+			case "prune-bound":
+				if (value == null) { return false; }
+				Settings.pruneLowerBound = Float.parseFloat(value);
+				return true;
+			case "plane-cache":
+				if (value == null || value.equals("on")) {
+					Settings.planeCache = true;
+				} else if (value.equals("off")) {
+					Settings.planeCache = false;
+				} else {
+					Settings.planeCacheSize = Long.parseLong(value) * 1024 * 1024;
+					Settings.planeCache = Settings.planeCacheSize > 0;
+				}
+				return true;
+			case "traceback":
+				Settings.traceback = true;
+				return true;
+			case "linear-space":
+				Settings.linearSpace = true;
+				return true;
+			case "checkpoint-budget":
+				if (value == null) { return false; }
+				Settings.linearSpace = true;
+				Settings.checkpointBudget = Long.parseLong(value) * 1024 * 1024;
+				return true;
+			case "score-only":
+				Settings.scoreOnly = true;
+				if (value != null) {
+					Settings.scoreOnlyHyperplaneMinSize = Long.parseLong(value);
+				}
+				return true;
+			case "mapped-min-size":
+				if (value == null) { return false; }
+				Settings.mappedStorageMinSize = Long.parseLong(value);
+				return true;
+			default:
+				return false;
+			}
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private void printUsage() {
+		System.out.println("usage:\nvaPLA.jar [sequencesFilePath] [localityPath] [scoringFilePath] [codeFilePath]\nvaPLA.jar [sequencesLocalitiesName] [scoringFilePath] [codeFilePath]\nvaPLA.jar [sequencesLocalitiesName] [scoringFilePath]\nvaPLA.jar [sequencesLocalitiesName]\n  EXAMPLE:\n  java -jar vaPLA.jar data/example");
+		System.out.println("options:\n"
+				+ "  --integer-scoring[=scale]   scale the scores to fixed-point integers (exact float sums below 2^24)\n"
+				+ "  --short-storage             with --integer-scoring: store scores as short values if the score range allows it\n"
+				+ "  --off-heap                  store the score matrices off-heap (always done for matrices with more than 2^31 entries)\n"
+				+ "  --scratch-dir=path          store large score matrices in memory-mapped files in the given directory\n"
+				+ "  --mapped-min-size=entries   the minimal number of matrix entries to be memory-mapped (default 1048576)\n"
+				+ "  --parallelism=threads       the number of threads computing independent states (default: available processors)\n"
+				+ "  --wavefront[=grain]         compute the cells of a state in parallel hyperplane by hyperplane (grain: cells per task, default 4096)\n"
+				+ "  --tiling[=on|off|auto]      compute the matrices tile by tile (auto: if a matrix exceeds 8 MiB, default off)\n"
+				+ "  --tile-length=cells         the length of a tile in every dimension (default: a tile fits into 256 KiB)\n"
+				+ "  --lattice                   generate the Hassegraph in closed form (states in topological order)\n"
+				+ "  --prune-bound=score         skip the states which can not be passed by an alignment scoring at least score (the score of a known alignment)\n"
+				+ "  --plane-cache[=on|off|MiB]  share the boundary planes between states with the same plane passes (default: on, 256 MiB)\n"
+				+ "  --traceback                 record the backtrack steps while the matrices are filled (up to 7 active sequences, a few packed bits per cell)\n"
+				+ "  --linear-space              keep only the boundary and a few hyperplanes of the matrices no following state reads cells from, recompute their paths\n"
+				+ "  --checkpoint-budget=MiB     like --linear-space, keeping checkpoint hyperplanes within the budget, the backtrack recomputes between them\n"
+				+ "  --score-only[=entries]      compute the score and the max final state only (no alignment), keeping a few hyperplanes of the matrices\n"
+				+ "                              exceeding entries no following state reads cells from (default: a quarter of the heap)");
+	}
+
 }